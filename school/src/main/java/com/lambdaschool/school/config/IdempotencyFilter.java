@@ -0,0 +1,241 @@
+package com.lambdaschool.school.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Idempotency-Key for the create endpoints. The first request with a key runs and its
+// response is kept; a retry with the same key, or one arriving while the first is still
+// running, gets that response back without reaching the controller. Keys belong to the
+// caller and the endpoint, and are forgotten after school.idempotency.ttl-ms or when the
+// store is full. Server errors are not kept, so those can be retried for real.
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter
+{
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Set<String> PATHS = new HashSet<>(Arrays.asList("/students/Student", "/users/user", "/roles/role"));
+
+    private final Cache<String, CompletableFuture<StoredResponse>> responses;
+
+    private final long waitMs;
+
+    private static class StoredResponse
+    {
+        final byte[] fingerprint;
+        final int status;
+        final String contentType;
+        final String location;
+        final byte[] body;
+
+        StoredResponse(byte[] fingerprint, int status, String contentType, String location, byte[] body)
+        {
+            this.fingerprint = fingerprint;
+            this.status = status;
+            this.contentType = contentType;
+            this.location = location;
+            this.body = body;
+        }
+    }
+
+    public IdempotencyFilter(@Value("${school.idempotency.max-keys:10000}") long maxKeys,
+                             @Value("${school.idempotency.ttl-ms:86400000}") long ttlMs,
+                             @Value("${school.idempotency.wait-ms:10000}") long waitMs)
+    {
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+                .build();
+        this.waitMs = waitMs;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request)
+    {
+        return !"POST".equals(request.getMethod())
+                || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null
+                || !PATHS.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException
+    {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String caller = authentication != null ? authentication.getName() : "anonymous";
+        String key = caller + " " + request.getRequestURI() + " " + request.getHeader(IDEMPOTENCY_KEY_HEADER);
+
+        byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+        byte[] fingerprint = sha256(body);
+
+        ConcurrentMap<String, CompletableFuture<StoredResponse>> store = responses.asMap();
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> first = store.putIfAbsent(key, mine);
+        if (first != null)
+        {
+            replay(first, fingerprint, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try
+        {
+            chain.doFilter(new CachedBodyRequest(request, body), wrapper);
+        } catch (IOException | ServletException | RuntimeException e)
+        {
+            store.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+
+        StoredResponse stored = new StoredResponse(fingerprint, wrapper.getStatus(), wrapper.getContentType(),
+                                                   wrapper.getHeader(HttpHeaders.LOCATION), wrapper.getContentAsByteArray());
+        if (stored.status >= 500)
+        {
+            store.remove(key, mine);
+        }
+        mine.complete(stored);
+        wrapper.copyBodyToResponse();
+    }
+
+    private void replay(CompletableFuture<StoredResponse> first, byte[] fingerprint, HttpServletResponse response) throws IOException
+    {
+        StoredResponse stored;
+        try
+        {
+            stored = first.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e)
+        {
+            sendError(response, HttpStatus.CONFLICT, "A request with this Idempotency-Key is still being processed");
+            return;
+        } catch (ExecutionException e)
+        {
+            sendError(response, HttpStatus.CONFLICT, "The request with this Idempotency-Key failed, retry with the same key");
+            return;
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            sendError(response, HttpStatus.SERVICE_UNAVAILABLE, "Interrupted");
+            return;
+        }
+
+        if (!MessageDigest.isEqual(stored.fingerprint, fingerprint))
+        {
+            sendError(response, HttpStatus.UNPROCESSABLE_ENTITY, "This Idempotency-Key was used with a different request body");
+            return;
+        }
+
+        response.setStatus(stored.status);
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.contentType != null)
+        {
+            response.setContentType(stored.contentType);
+        }
+        if (stored.location != null)
+        {
+            response.setHeader(HttpHeaders.LOCATION, stored.location);
+        }
+        response.setContentLength(stored.body.length);
+        response.getOutputStream().write(stored.body);
+    }
+
+    private static void sendError(HttpServletResponse response, HttpStatus status, String detail) throws IOException
+    {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        String json = "{\"status\":" + status.value() + ",\"title\":\"" + status.getReasonPhrase() + "\",\"detail\":\"" + detail + "\"}";
+        response.getOutputStream().write(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] sha256(byte[] body)
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256").digest(body);
+        } catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // the body was read to fingerprint it, so hand the controller a copy
+    private static class CachedBodyRequest extends HttpServletRequestWrapper
+    {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body)
+        {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream()
+        {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream()
+            {
+                @Override
+                public boolean isFinished()
+                {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady()
+                {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener)
+                {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read()
+                {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len)
+                {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.lambdaschool.school.config;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+
+// Prefix searches (LIKE 'jo%') can only use a plain btree index when the database collates
+// with "C". PostgreSQL databases usually don't, so there the columns searched by prefix get
+// a second index with the pattern operator class, which JPA can't declare. Other databases
+// (H2) use the @Index of the entity as it is.
+@Component
+public class PatternIndexes implements ApplicationRunner
+{
+    // index, table, column
+    private static final String[][] INDEXES = {
+            {"idx_student_studnamekey_pattern", "student", "studnamekey"}
+    };
+
+    @Autowired
+    @Qualifier("jdbcCustom")
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    @Override
+    public void run(ApplicationArguments args)
+    {
+        Dialect dialect = emf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        if (!(dialect instanceof PostgreSQL81Dialect))
+        {
+            return;
+        }
+
+        for (String[] i : INDEXES)
+        {
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + i[0] + " ON " + i[1] + " (" + i[2] + " varchar_pattern_ops)");
+        }
+    }
+}
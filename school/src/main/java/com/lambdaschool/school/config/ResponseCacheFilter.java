@@ -0,0 +1,209 @@
+package com.lambdaschool.school.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lambdaschool.school.service.ResourceChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+// Serialized responses of the hot listings, so a repeat request is a copy of bytes instead of
+// a query, hydration and Jackson. Entries are per path, query string and the caller's
+// authorities. Each route has a generation that is bumped when a write to a resource it shows
+// commits (see ResourceChangedEvent), an entry from an older generation is never served.
+// Anything changed behind the application's back is seen after school.response-cache.ttl-ms.
+@Component
+public class ResponseCacheFilter extends OncePerRequestFilter
+{
+    private final Map<String, Route> routes = new HashMap<>();
+
+    private final Cache<String, CachedResponse> responses;
+
+    private final boolean gzip;
+
+    private static class Route
+    {
+        final Set<String> resources;
+        final AtomicLong generation = new AtomicLong();
+        final Counter hits;
+        final Counter misses;
+
+        Route(MeterRegistry meterRegistry, String path, String... resources)
+        {
+            this.resources = new HashSet<>(Arrays.asList(resources));
+            this.hits = meterRegistry.counter("school.response.cache", "route", path, "result", "hit");
+            this.misses = meterRegistry.counter("school.response.cache", "route", path, "result", "miss");
+        }
+    }
+
+    private static class CachedResponse
+    {
+        final long generation;
+        final String contentType;
+        final String etag;
+        final byte[] body;
+        final byte[] gzipped;
+
+        CachedResponse(long generation, String contentType, String etag, byte[] body, byte[] gzipped)
+        {
+            this.generation = generation;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.body = body;
+            this.gzipped = gzipped;
+        }
+    }
+
+    public ResponseCacheFilter(MeterRegistry meterRegistry,
+                               @Value("${school.response-cache.max-entries:1000}") long maxEntries,
+                               @Value("${school.response-cache.ttl-ms:600000}") long ttlMs,
+                               @Value("${school.response-cache.gzip:false}") boolean gzip)
+    {
+        // courses carry their students, the counts carry the course names, roles carry their users
+        routes.put("/courses/courses", new Route(meterRegistry, "/courses/courses", "course", "student"));
+        routes.put("/courses/studcount", new Route(meterRegistry, "/courses/studcount", "course", "student"));
+        routes.put("/roles/roles", new Route(meterRegistry, "/roles/roles", "role", "user"));
+
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+                .build();
+        this.gzip = gzip;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onResourceChanged(ResourceChangedEvent event)
+    {
+        for (Route route : routes.values())
+        {
+            if (route.resources.contains(event.getResource()))
+            {
+                route.generation.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request)
+    {
+        return !"GET".equals(request.getMethod()) || !routes.containsKey(path(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException
+    {
+        Route route = routes.get(path(request));
+        String key = key(request);
+
+        // read before the response is made, a write committing meanwhile makes it stale at once
+        long generation = route.generation.get();
+        CachedResponse cached = responses.getIfPresent(key);
+        if (cached != null && cached.generation == generation)
+        {
+            route.hits.increment();
+            write(cached, request, response);
+            return;
+        }
+        route.misses.increment();
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+        if (wrapper.getStatus() == HttpServletResponse.SC_OK)
+        {
+            byte[] body = wrapper.getContentAsByteArray();
+            responses.put(key, new CachedResponse(generation, wrapper.getContentType(), wrapper.getHeader(HttpHeaders.ETAG),
+                                                  body, gzip ? gzip(body) : null));
+        }
+        if (gzip)
+        {
+            wrapper.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private void write(CachedResponse cached, HttpServletRequest request, HttpServletResponse response) throws IOException
+    {
+        // the entry is current, so its ETag is too (both move with ResourceChangedEvent)
+        if (cached.etag != null && new ServletWebRequest(request, response).checkNotModified(cached.etag))
+        {
+            return;
+        }
+
+        byte[] body = cached.body;
+        if (cached.gzipped != null)
+        {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            String accept = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+            if (accept != null && accept.contains("gzip"))
+            {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                body = cached.gzipped;
+            }
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(cached.contentType);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static String path(HttpServletRequest request)
+    {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static String key(HttpServletRequest request)
+    {
+        StringBuilder key = new StringBuilder(request.getRequestURI());
+        if (request.getQueryString() != null)
+        {
+            key.append('?').append(request.getQueryString());
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null)
+        {
+            Set<String> authorities = new TreeSet<>();
+            for (GrantedAuthority authority : authentication.getAuthorities())
+            {
+                authorities.add(authority.getAuthority());
+            }
+            key.append(' ').append(authorities);
+        }
+        return key.toString();
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out))
+        {
+            gz.write(body);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,53 @@
+package com.lambdaschool.school.config;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+
+// Tables that moved off the shared hibernate_sequence onto a sequence of their own start
+// that sequence at 1 while the table already holds higher ids. Before anything is
+// inserted, move such a sequence past the largest id in its table. This runs once every
+// bean is in place but before the web server takes its first request (and before the
+// runners seed anything), rather than as an ApplicationRunner after it.
+@Component
+public class SequenceAlignment implements SmartInitializingSingleton
+{
+    private static final Logger logger = LoggerFactory.getLogger(SequenceAlignment.class);
+
+    // sequence, table, id column
+    private static final String[][] SEQUENCES = {
+            {"student_seq", "student", "studid"}
+    };
+
+    @Autowired
+    @Qualifier("jdbcCustom")
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    @Override
+    public void afterSingletonsInstantiated()
+    {
+        Dialect dialect = emf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+
+        for (String[] s : SEQUENCES)
+        {
+            Long next = jdbcTemplate.queryForObject(dialect.getSequenceNextValString(s[0]), Long.class);
+            Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(" + s[2] + "), 0) FROM " + s[1], Long.class);
+            if (next != null && max != null && next <= max)
+            {
+                jdbcTemplate.execute("ALTER SEQUENCE " + s[0] + " RESTART WITH " + (max + 1));
+                logger.info(s[0] + " moved past " + s[1] + "." + s[2] + " " + max);
+            }
+        }
+    }
+}
@@ -29,6 +29,7 @@ public class SimpleCorsFilter implements Filter
         response.setHeader("Access-Control-Allow-Methods", "*");
         //        response.setHeader("Access-Control-Allow-Headers", "x-requested-with, authorization, content-type, access_token");
         response.setHeader("Access-Control-Allow-Headers", "*");
+        response.setHeader("Access-Control-Expose-Headers", "Location, ETag, Idempotent-Replayed, X-Next-Cursor, X-Has-Next, X-Total-Count");
         response.setHeader("Access-Control-Max-Age", "3600");
 
         if (HttpMethod.OPTIONS.name().equalsIgnoreCase(((HttpServletRequest) req).getMethod()))
@@ -3,19 +3,31 @@ package com.lambdaschool.school.controller;
 import com.lambdaschool.school.model.Course;
 import com.lambdaschool.school.model.ErrorDetail;
 import com.lambdaschool.school.service.CourseService;
+import com.lambdaschool.school.service.ResourceVersionService;
+import com.lambdaschool.school.view.BatchResult;
+import com.lambdaschool.school.view.ChangeSet;
 import com.lambdaschool.school.view.CountStudentsInCourses;
+import com.lambdaschool.school.view.CourseSummary;
+import com.lambdaschool.school.view.DeleteResult;
+import com.lambdaschool.school.view.EntityTag;
+import com.lambdaschool.school.view.KeysetCursor;
 import io.swagger.annotations.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping(value = "/courses")
@@ -27,6 +39,10 @@ public class CourseController
 
     @Autowired
     private CourseService courseService;
+
+    @Autowired
+    private ResourceVersionService resourceVersionService;
+
     // Swagger annotation, giving this endpoint documentation saying that it will
     // get all courses available with pagination, and the response will be a container of type List
     @ApiOperation(value ="Get all courses available with pagination", responseContainer = "List")
@@ -38,15 +54,63 @@ public class CourseController
             @ApiImplicitParam(name = "sort", allowMultiple = true, dataType = "string", paramType = "query",
                     value = "Sorting criteria in the format: property(,asc|desc). " +
                             "Default sort order is ascending. " +
-                            "Multiple sort criteria are supported.")})
+                            "Multiple sort criteria are supported."),
+            @ApiImplicitParam(name = "after", dataType = "string", paramType = "query",
+                    value = "Cursor from the X-Next-Cursor header of the previous page. " +
+                            "When given, page and sort are ignored and the page after the cursor is returned."),
+            @ApiImplicitParam(name = "total", dataType = "boolean", paramType = "query",
+                    value = "Also send the approximate number of courses in the X-Total-Count header.")})
     @GetMapping(value = "/allcourses", produces = {"application/json"})
-    public ResponseEntity<?> listAllCoursesPaging(@PageableDefault(page = 0, size = 3) Pageable pageable, HttpServletRequest request)
+    public ResponseEntity<?> listAllCoursesPaging(@PageableDefault(page = 0, size = 3) Pageable pageable,
+                                                  @RequestParam(required = false) String after,
+                                                  @RequestParam(defaultValue = "false") boolean total,
+                                                  HttpServletRequest request, WebRequest webRequest)
     {
         // logger will go here logging when accessed
         logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
 
-        ArrayList<Course> myCourses = courseService.findAll(pageable);
-        return new ResponseEntity<>(myCourses, HttpStatus.OK);
+        // the client already has the current state, answer 304 without loading anything
+        if (webRequest.checkNotModified(resourceVersionService.collectionTag("course", "student")))
+        {
+            return null;
+        }
+
+        HttpHeaders responseHeaders = new HttpHeaders();
+        List<Course> myCourses;
+        String sortkey;
+        boolean hasNext;
+        if (after != null)
+        {
+            KeysetCursor cursor = KeysetCursor.decode(after);
+            myCourses = courseService.findAllAfter(cursor, pageable.getPageSize());
+            sortkey = cursor.getSortkey();
+            hasNext = myCourses.size() >= pageable.getPageSize();
+        } else
+        {
+            // a slice knows whether another page follows without counting every row
+            Slice<Course> slice = courseService.findSlice(pageable);
+            myCourses = slice.getContent();
+            sortkey = KeysetCursor.sortKeyOf(pageable.getSort(), "courseid", "coursename");
+            hasNext = slice.hasNext();
+            responseHeaders.set("X-Has-Next", Boolean.toString(hasNext));
+        }
+
+        if (total)
+        {
+            responseHeaders.set("X-Total-Count", Long.toString(courseService.getApproximateTotal()));
+        }
+
+        // hand out the cursor for the next page
+        if (sortkey != null && !myCourses.isEmpty() && hasNext)
+        {
+            Course last = myCourses.get(myCourses.size() - 1);
+            String value = sortkey.equals("coursename") ? last.getCoursename() : null;
+            if (value != null || sortkey.equals("courseid"))
+            {
+                responseHeaders.set(KeysetCursor.NEXT_CURSOR_HEADER, new KeysetCursor(sortkey, value, last.getCourseid()).encode());
+            }
+        }
+        return new ResponseEntity<>(myCourses, responseHeaders, HttpStatus.OK);
     }
 
 
@@ -54,29 +118,139 @@ public class CourseController
     // get all courses available, and the response will be a container of type List
     @ApiOperation(value ="Get all courses available", responseContainer = "List")
     @GetMapping(value = "/courses", produces = {"application/json"})
-    public ResponseEntity<?> listAllCourses(HttpServletRequest request)
+    public ResponseEntity<?> listAllCourses(HttpServletRequest request, WebRequest webRequest)
     {
         // logger will go here logging when accessed
         logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
 
+        if (webRequest.checkNotModified(resourceVersionService.collectionTag("course", "student")))
+        {
+            return null;
+        }
+
         ArrayList<Course> myCourses = courseService.findAll();
         return new ResponseEntity<>(myCourses, HttpStatus.OK);
     }
 
+    // Swagger annotation, giving this endpoint documentation saying that it will
+    // get id, name and instructor name of all courses without loading full Course entities
+    @ApiOperation(value = "Get course ids, names and instructor names", response = CourseSummary.class, responseContainer = "List")
+    @GetMapping(value = "/summary", produces = {"application/json"})
+    public ResponseEntity<?> listCourseSummaries(HttpServletRequest request, WebRequest webRequest)
+    {
+        // logger will go here logging when accessed
+        logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
+
+        if (webRequest.checkNotModified(resourceVersionService.collectionTag("course")))
+        {
+            return null;
+        }
+
+        ArrayList<CourseSummary> mySummaries = courseService.findAllSummaries();
+        return new ResponseEntity<>(mySummaries, HttpStatus.OK);
+    }
+
+    // Swagger annotation, giving this endpoint documentation saying that it will
+    // get several courses by courseid in one call, reporting the ids that don't exist
+    @ApiOperation(value = "Get a list of courses by id", response = BatchResult.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Courses located, missing ids listed", response = BatchResult.class),
+            @ApiResponse(code = 400, message = "Too many ids requested", response = ErrorDetail.class)
+    })
+    @GetMapping(value = "/batch", produces = {"application/json"})
+    public ResponseEntity<?> getCoursesById(@ApiParam(value = "comma separated courseids", required = true, example = "1,2,3") @RequestParam List<Long> ids, HttpServletRequest request, WebRequest webRequest)
+    {
+        // logger will go here logging when accessed
+        logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
+
+        if (webRequest.checkNotModified(resourceVersionService.collectionTag("course", "student")))
+        {
+            return null;
+        }
+
+        BatchResult<Course> myCourses = courseService.findCoursesById(ids);
+        return new ResponseEntity<>(myCourses, HttpStatus.OK);
+    }
+
+    // Swagger annotation, giving this endpoint documentation saying that it will
+    // delete many courses at once, by id or by instructor, reporting the ids that don't exist
+    @ApiOperation(value = "Deletes courses by id and/or instructor", notes = "with only an instructid every course of that instructor is deleted", response = DeleteResult.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Courses deleted, missing ids listed", response = DeleteResult.class),
+            @ApiResponse(code = 400, message = "Neither ids nor instructid given", response = ErrorDetail.class)
+    })
+    @DeleteMapping(value = "/batch", produces = {"application/json"})
+    public ResponseEntity<?> deleteCoursesById(@ApiParam(value = "comma separated courseids", example = "1,2,3") @RequestParam(required = false) List<Long> ids,
+                                               @ApiParam(value = "only courses of this instructor", example = "1") @RequestParam(required = false) Long instructid,
+                                               HttpServletRequest request)
+    {
+        // logger will go here logging when accessed
+        logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
+
+        DeleteResult result = courseService.deleteAll(ids, instructid);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    // Swagger annotation, giving this endpoint documentation saying that it will
+    // get the courses created, modified or deleted since the token from the previous call
+    @ApiOperation(value = "Get courses changed since a sync token", response = ChangeSet.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Changes located", response = ChangeSet.class),
+            @ApiResponse(code = 400, message = "Invalid or expired sync token", response = ErrorDetail.class)
+    })
+    @GetMapping(value = "/changes", produces = {"application/json"})
+    public ResponseEntity<?> getCourseChanges(@ApiParam(value = "token from the previous change set, leave out for a full sync") @RequestParam(required = false) String since, HttpServletRequest request)
+    {
+        // logger will go here logging when accessed
+        logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
+
+        ChangeSet<Course> myChanges = courseService.findChangedSince(since);
+        return new ResponseEntity<>(myChanges, HttpStatus.OK);
+    }
+
     @ApiOperation(value = "Get count of all students enrolled in a single course", responseContainer = "List")
     @ApiResponses(value = {
             @ApiResponse(code = 201, message = "Count determined", responseContainer = "List", response = CountStudentsInCourses.class),
             @ApiResponse(code = 404, message = "Could not find count", response = ErrorDetail.class )
     })
     @GetMapping(value = "/studcount", produces = {"application/json"})
-    public ResponseEntity<?> getCountStudentsInCourses(HttpServletRequest request)
+    public ResponseEntity<?> getCountStudentsInCourses(HttpServletRequest request, WebRequest webRequest)
     {
         // logger will go here logging when accessed
         logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
 
+        if (webRequest.checkNotModified(resourceVersionService.collectionTag("course", "student")))
+        {
+            return null;
+        }
+
         return new ResponseEntity<>(courseService.getCountStudentsInCourse(), HttpStatus.OK);
     }
 
+    // Swagger annotation, giving this endpoint documentation saying that it will
+    // change only the fields sent, provided the course is still at the version the client read
+    @ApiOperation(value = "Changes the fields of a course that are sent (JSON merge patch)", notes = "coursename and instructor ({\"instructid\": n} or null) can be changed. The version being changed comes from If-Match or a version field, the new version is returned as the ETag", response = void.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 204, message = "Course updated", response = void.class),
+            @ApiResponse(code = 400, message = "Field cannot be changed or version missing", response = ErrorDetail.class),
+            @ApiResponse(code = 404, message = "Course or instructor Not Found", response = ErrorDetail.class),
+            @ApiResponse(code = 409, message = "Course was changed by someone else", response = ErrorDetail.class)
+    })
+    @PatchMapping(value = "/courses/{courseid}",
+                  consumes = {"application/merge-patch+json", "application/json"})
+    public ResponseEntity<?> patchCourse(@RequestBody Map<String, Object> changes,
+                                         @ApiParam(value = "courseid", required = true, example = "1") @PathVariable long courseid,
+                                         @RequestHeader(value = "If-Match", required = false) String ifMatch,
+                                         HttpServletRequest request)
+    {
+        logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
+
+        long version = courseService.patch(courseid, changes, EntityTag.parse(ifMatch));
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.setETag(EntityTag.of(version));
+        return new ResponseEntity<>(null, responseHeaders, HttpStatus.NO_CONTENT);
+    }
+
     // no response so response is void
     @ApiOperation(value = "Deletes a course by courseid", response = void.class)
     // add custom error handling
@@ -0,0 +1,60 @@
+package com.lambdaschool.school.controller;
+
+import com.lambdaschool.school.service.ChangeEventBuffer;
+import com.lambdaschool.school.view.ChangeEvent;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+
+// change events for students, courses and enrollments as they commit, so consumers don't
+// have to poll the listings. Each event carries a cursor to resume from.
+@RestController
+@RequestMapping("/events")
+public class EventController
+{
+    private static final Logger logger = LoggerFactory.getLogger(EventController.class);
+
+    // longest a long poll waits and most events it returns
+    private static final long POLL_TIMEOUT_MS = 30000;
+
+    private static final int POLL_MAX_EVENTS = 1000;
+
+    // an SSE stream is closed after this, clients reconnect with Last-Event-ID
+    private static final long STREAM_TIMEOUT_MS = 30 * 60 * 1000;
+
+    @Autowired
+    private ChangeEventBuffer changeEventBuffer;
+
+    @ApiOperation(value = "Long poll for change events after a cursor", notes = "answers as soon as there are events after the cursor, or with an empty list after 30 seconds", response = ChangeEvent.class, responseContainer = "List")
+    @GetMapping(value = "", produces = {"application/json"})
+    public DeferredResult<List<ChangeEvent>> pollEvents(@ApiParam(value = "cursor of the last event seen", example = "0") @RequestParam(defaultValue = "0") String after,
+                                                        HttpServletRequest request)
+    {
+        logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
+
+        return changeEventBuffer.poll(after, POLL_MAX_EVENTS, POLL_TIMEOUT_MS);
+    }
+
+    @ApiOperation(value = "Server-sent event stream of change events", notes = "the event id is the cursor, reconnecting with Last-Event-ID resumes after it")
+    @GetMapping(value = "/stream", produces = {"text/event-stream"})
+    public SseEmitter streamEvents(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                   @ApiParam(value = "cursor of the last event seen", example = "0") @RequestParam(defaultValue = "0") String after,
+                                   HttpServletRequest request)
+    {
+        logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
+
+        return changeEventBuffer.subscribe(lastEventId != null ? lastEventId : after, STREAM_TIMEOUT_MS);
+    }
+}
@@ -0,0 +1,79 @@
+package com.lambdaschool.school.controller;
+
+import com.lambdaschool.school.service.ImportService;
+import com.lambdaschool.school.view.ImportReport;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+// CSV uploads, the body is read as it arrives so files of any size can be sent.
+// The first line is a header and is skipped.
+@RestController
+@RequestMapping("/import")
+public class ImportController
+{
+    private static final Logger logger = LoggerFactory.getLogger(ImportController.class);
+
+    @Autowired
+    private ImportService importService;
+
+    @ApiOperation(value = "Imports students from CSV", notes = "one studname per line", response = ImportReport.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Import finished, failed chunks are listed in the report", response = ImportReport.class)
+    })
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @PostMapping(value = "/students",
+                 consumes = {"text/csv", "text/plain"},
+                 produces = {"application/json"})
+    public ResponseEntity<?> importStudents(HttpServletRequest request) throws IOException
+    {
+        logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
+
+        ImportReport report = importService.importStudents(request.getInputStream());
+        return new ResponseEntity<>(report, HttpStatus.OK);
+    }
+
+    @ApiOperation(value = "Imports courses from CSV", notes = "coursename,instructid per line, instructid may be empty", response = ImportReport.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Import finished, failed chunks are listed in the report", response = ImportReport.class)
+    })
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @PostMapping(value = "/courses",
+                 consumes = {"text/csv", "text/plain"},
+                 produces = {"application/json"})
+    public ResponseEntity<?> importCourses(HttpServletRequest request) throws IOException
+    {
+        logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
+
+        ImportReport report = importService.importCourses(request.getInputStream());
+        return new ResponseEntity<>(report, HttpStatus.OK);
+    }
+
+    @ApiOperation(value = "Imports enrollments from CSV", notes = "studid,courseid per line, pairs already enrolled are skipped", response = ImportReport.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Import finished, failed chunks are listed in the report", response = ImportReport.class)
+    })
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @PostMapping(value = "/enrollments",
+                 consumes = {"text/csv", "text/plain"},
+                 produces = {"application/json"})
+    public ResponseEntity<?> importEnrollments(HttpServletRequest request) throws IOException
+    {
+        logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
+
+        ImportReport report = importService.importEnrollments(request.getInputStream());
+        return new ResponseEntity<>(report, HttpStatus.OK);
+    }
+}
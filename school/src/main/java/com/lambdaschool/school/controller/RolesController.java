@@ -1,16 +1,23 @@
 package com.lambdaschool.school.controller;
 
+import com.lambdaschool.school.model.Role;
 import com.lambdaschool.school.service.RoleService;
+import com.lambdaschool.school.service.ResourceVersionService;
+import com.lambdaschool.school.view.RoleAssignment;
+import com.lambdaschool.school.view.RoleSummary;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.Valid;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.List;
 
 @RestController
 @RequestMapping("/roles")
@@ -19,17 +26,44 @@ public class RolesController
     @Autowired
     RoleService roleService;
 
+    @Autowired
+    private ResourceVersionService resourceVersionService;
+
     @GetMapping(value = "/roles", produces = {"application/json"})
-    public ResponseEntity<?> listRoles()
+    public ResponseEntity<?> listRoles(WebRequest webRequest)
     {
+        // the client already has the current state, answer 304 without loading anything
+        if (webRequest.checkNotModified(resourceVersionService.collectionTag("role", "user")))
+        {
+            return null;
+        }
+
         List<Role> allRoles = roleService.findAll();
         return new ResponseEntity<>(allRoles, HttpStatus.OK);
     }
 
 
+    @GetMapping(value = "/summary", produces = {"application/json"})
+    public ResponseEntity<?> listRoleSummaries(WebRequest webRequest)
+    {
+        if (webRequest.checkNotModified(resourceVersionService.collectionTag("role")))
+        {
+            return null;
+        }
+
+        List<RoleSummary> mySummaries = roleService.findAllSummaries();
+        return new ResponseEntity<>(mySummaries, HttpStatus.OK);
+    }
+
+
     @GetMapping(value = "/role/{roleId}", produces = {"application/json"})
-    public ResponseEntity<?> getRole(@PathVariable Long roleId)
+    public ResponseEntity<?> getRole(@PathVariable Long roleId, WebRequest webRequest)
     {
+        if (webRequest.checkNotModified(resourceVersionService.entityTag("role", roleId, "user")))
+        {
+            return null;
+        }
+
         Role r = roleService.findRoleById(roleId);
         return new ResponseEntity<>(r, HttpStatus.OK);
     }
@@ -53,6 +87,16 @@ public class RolesController
     }
 
 
+    // gives the role to every listed user, users that already have it are left alone
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @PostMapping(value = "/role/{roleid}/users", consumes = {"application/json"}, produces = {"application/json"})
+    public ResponseEntity<?> assignRoleToUsers(@PathVariable long roleid, @RequestBody List<Long> userids)
+    {
+        RoleAssignment assignment = roleService.assignToUsers(roleid, userids);
+        return new ResponseEntity<>(assignment, HttpStatus.OK);
+    }
+
+
     @DeleteMapping("/role/{id}")
     public ResponseEntity<?> deleteRoleById(@PathVariable long id)
     {
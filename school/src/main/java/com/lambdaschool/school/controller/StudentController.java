@@ -1,25 +1,40 @@
 package com.lambdaschool.school.controller;
 
+import com.lambdaschool.school.exceptions.ConflictException;
 import com.lambdaschool.school.model.ErrorDetail;
 import com.lambdaschool.school.model.Student;
+import com.lambdaschool.school.service.EnrollmentQueueService;
+import com.lambdaschool.school.service.ResourceVersionService;
 import com.lambdaschool.school.service.StudentService;
+import com.lambdaschool.school.view.BatchResult;
+import com.lambdaschool.school.view.ChangeSet;
+import com.lambdaschool.school.view.DeleteResult;
+import com.lambdaschool.school.view.EnrollmentTicket;
+import com.lambdaschool.school.view.EntityTag;
+import com.lambdaschool.school.view.KeysetCursor;
+import com.lambdaschool.school.view.StudentSummary;
 import io.swagger.annotations.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import javax.validation.Valid;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/students")
@@ -30,6 +45,12 @@ public class StudentController
     @Autowired
     private StudentService studentService;
 
+    @Autowired
+    private EnrollmentQueueService enrollmentQueueService;
+
+    @Autowired
+    private ResourceVersionService resourceVersionService;
+
     // Swagger annotation, giving this endpoint documentation saying that it will
     // get all students with paging, and the response will be a container of type List
     @ApiOperation(value = "Get all students, with pagination", responseContainer = "List" )
@@ -41,14 +62,62 @@ public class StudentController
             @ApiImplicitParam(name = "sort", allowMultiple = true, dataType = "string", paramType = "query",
                     value = "Sorting criteria in the format: property(,asc|desc). " +
                             "Default sort order is ascending. " +
-                            "Multiple sort criteria are supported.")})
+                            "Multiple sort criteria are supported."),
+            @ApiImplicitParam(name = "after", dataType = "string", paramType = "query",
+                    value = "Cursor from the X-Next-Cursor header of the previous page. " +
+                            "When given, page and sort are ignored and the page after the cursor is returned."),
+            @ApiImplicitParam(name = "total", dataType = "boolean", paramType = "query",
+                    value = "Also send the approximate number of students in the X-Total-Count header.")})
     @GetMapping(value = "/students", produces = {"application/json"})
-    public ResponseEntity<?> listAllStudentsWithPaging(@PageableDefault(page = 0, size = 3) Pageable pageable, HttpServletRequest request)
+    public ResponseEntity<?> listAllStudentsWithPaging(@PageableDefault(page = 0, size = 3) Pageable pageable,
+                                                       @RequestParam(required = false) String after,
+                                                       @RequestParam(defaultValue = "false") boolean total,
+                                                       HttpServletRequest request, WebRequest webRequest)
     {
         logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
 
-        List<Student> myStudents = studentService.findAll(pageable);
-        return new ResponseEntity<>(myStudents, HttpStatus.OK);
+        // the client already has the current state, answer 304 without loading anything
+        if (webRequest.checkNotModified(resourceVersionService.collectionTag("student", "course")))
+        {
+            return null;
+        }
+
+        HttpHeaders responseHeaders = new HttpHeaders();
+        List<Student> myStudents;
+        String sortkey;
+        boolean hasNext;
+        if (after != null)
+        {
+            KeysetCursor cursor = KeysetCursor.decode(after);
+            myStudents = studentService.findAllAfter(cursor, pageable.getPageSize());
+            sortkey = cursor.getSortkey();
+            hasNext = myStudents.size() >= pageable.getPageSize();
+        } else
+        {
+            // a slice knows whether another page follows without counting every row
+            Slice<Student> slice = studentService.findSlice(pageable);
+            myStudents = slice.getContent();
+            sortkey = KeysetCursor.sortKeyOf(pageable.getSort(), "studid", "studname");
+            hasNext = slice.hasNext();
+            responseHeaders.set("X-Has-Next", Boolean.toString(hasNext));
+        }
+
+        if (total)
+        {
+            responseHeaders.set("X-Total-Count", Long.toString(studentService.getApproximateTotal()));
+        }
+
+        // hand out the cursor for the next page
+        if (sortkey != null && !myStudents.isEmpty() && hasNext)
+        {
+            Student last = myStudents.get(myStudents.size() - 1);
+            String value = sortkey.equals("studname") ? last.getStudname() : null;
+            if (value != null || sortkey.equals("studid"))
+            {
+                responseHeaders.set(KeysetCursor.NEXT_CURSOR_HEADER, new KeysetCursor(sortkey, value, last.getStudid()).encode());
+            }
+        }
+        return new ResponseEntity<>(myStudents, responseHeaders, HttpStatus.OK);
     }
 
     // Swagger annotation, giving this endpoint documentation saying that it will
@@ -60,15 +129,82 @@ public class StudentController
             @ApiResponse(code = 500, message = "Error finding students", response = ErrorDetail.class)
     })
     @GetMapping(value = "/allstudents", produces = {"application/json"})
-    public ResponseEntity<?> listAllStudents(HttpServletRequest request)
+    public ResponseEntity<?> listAllStudents(HttpServletRequest request, WebRequest webRequest)
     {
         logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
 
-        List<Student> myStudents = studentService.findAll(Pageable.unpaged());
+        if (webRequest.checkNotModified(resourceVersionService.collectionTag("student", "course")))
+        {
+            return null;
+        }
+
+        List<Student> myStudents = studentService.findAll();
         return new ResponseEntity<>(myStudents, HttpStatus.OK);
     }
 
 
+    // Swagger annotation, giving this endpoint documentation saying that it will
+    // get id and name of the students with paging, without loading full Student entities
+    @ApiOperation(value = "Get student ids and names, with pagination", response = StudentSummary.class, responseContainer = "List")
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "page", dataType = "integer", paramType = "query",
+                    value = "Results page you want to retrieve (0..N)"),
+            @ApiImplicitParam(name = "size", dataType = "integer", paramType = "query",
+                    value = "Number of records per page."),
+            @ApiImplicitParam(name = "sort", allowMultiple = true, dataType = "string", paramType = "query",
+                    value = "Sorting criteria in the format: property(,asc|desc). " +
+                            "Default sort order is ascending. " +
+                            "Multiple sort criteria are supported.")})
+    @GetMapping(value = "/summary", produces = {"application/json"})
+    public ResponseEntity<?> listStudentSummaries(@PageableDefault(page = 0, size = 50) Pageable pageable, HttpServletRequest request, WebRequest webRequest)
+    {
+        logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
+
+        if (webRequest.checkNotModified(resourceVersionService.collectionTag("student")))
+        {
+            return null;
+        }
+
+        List<StudentSummary> mySummaries = studentService.findAllSummaries(pageable);
+        return new ResponseEntity<>(mySummaries, HttpStatus.OK);
+    }
+
+    // Swagger annotation, giving this endpoint documentation saying that it will
+    // stream every student with their courses as newline delimited JSON
+    @ApiOperation(value = "Export all students and their enrollments as newline delimited JSON", response = Student.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Students exported", response = Student.class),
+            @ApiResponse(code = 500, message = "Error exporting students", response = ErrorDetail.class)
+    })
+    @GetMapping(value = "/export")
+    public void exportAllStudents(HttpServletRequest request, HttpServletResponse response) throws IOException
+    {
+        logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
+
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        studentService.exportAll(response.getOutputStream());
+    }
+
+    // Swagger annotation, giving this endpoint documentation saying that it will
+    // get the students created, modified or deleted since the token from the previous call
+    @ApiOperation(value = "Get students changed since a sync token", response = ChangeSet.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Changes located", response = ChangeSet.class),
+            @ApiResponse(code = 400, message = "Invalid or expired sync token", response = ErrorDetail.class)
+    })
+    @GetMapping(value = "/changes",
+                produces = {"application/json"})
+    public ResponseEntity<?> getStudentChanges(
+            @ApiParam(value = "token from the previous change set, leave out for a full sync")
+            @RequestParam(required = false)
+                    String since, HttpServletRequest request)
+    {
+        logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
+
+        ChangeSet<Student> myChanges = studentService.findChangedSince(since);
+        return new ResponseEntity<>(myChanges, HttpStatus.OK);
+    }
 
     // Swagger annotation, giving this endpoint documentation saying that it will
     // get a student by studid, and the response will be a Student type object
@@ -82,14 +218,44 @@ public class StudentController
                 produces = {"application/json"})
     public ResponseEntity<?> getStudentById(
             @PathVariable
-                    Long StudentId, HttpServletRequest request)
+                    Long StudentId, HttpServletRequest request, WebRequest webRequest)
     {
         logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
 
+        if (webRequest.checkNotModified(resourceVersionService.entityTag("student", StudentId, "course")))
+        {
+            return null;
+        }
+
         Student r = studentService.findStudentById(StudentId);
         return new ResponseEntity<>(r, HttpStatus.OK);
     }
 
+    // Swagger annotation, giving this endpoint documentation saying that it will
+    // get several students by studid in one call, reporting the ids that don't exist
+    @ApiOperation(value = "Get a list of students by id", response = BatchResult.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Students located, missing ids listed", response = BatchResult.class),
+            @ApiResponse(code = 400, message = "Too many ids requested", response = ErrorDetail.class)
+    })
+    @GetMapping(value = "/batch",
+                produces = {"application/json"})
+    public ResponseEntity<?> getStudentsById(
+            @ApiParam(value = "comma separated studids", required = true, example = "1,2,3")
+            @RequestParam
+                    List<Long> ids, HttpServletRequest request, WebRequest webRequest)
+    {
+        logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
+
+        if (webRequest.checkNotModified(resourceVersionService.collectionTag("student", "course")))
+        {
+            return null;
+        }
+
+        BatchResult<Student> myStudents = studentService.findStudentsById(ids);
+        return new ResponseEntity<>(myStudents, HttpStatus.OK);
+    }
+
     // Swagger annotation, giving this endpoint documentation saying that it will
     // get a student with a name starting with the provided name and return a response
     // of a list of Student types
@@ -102,21 +268,66 @@ public class StudentController
     @GetMapping(value = "/student/namelike/{name}",
                 produces = {"application/json"})
     public ResponseEntity<?> getStudentByNameContaining(
-            @PathVariable String name, HttpServletRequest request)
+            @PathVariable String name, HttpServletRequest request, WebRequest webRequest)
     {
         logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
 
+        if (webRequest.checkNotModified(resourceVersionService.collectionTag("student", "course")))
+        {
+            return null;
+        }
+
         List<Student> myStudents = studentService.findStudentByNameLike(name);
         return new ResponseEntity<>(myStudents, HttpStatus.OK);
     }
 
+    // Swagger annotation, giving this endpoint documentation saying that it will
+    // find students by any combination of name prefix, enrolled course and instructor
+    @ApiOperation(value = "Search students by name, course and instructor", responseContainer = "List", response = Student.class)
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "page", dataType = "integer", paramType = "query",
+                    value = "Results page you want to retrieve (0..N)"),
+            @ApiImplicitParam(name = "size", dataType = "integer", paramType = "query",
+                    value = "Number of records per page."),
+            @ApiImplicitParam(name = "sort", allowMultiple = true, dataType = "string", paramType = "query",
+                    value = "Sorting criteria in the format: property(,asc|desc). " +
+                            "Default sort order is ascending. " +
+                            "Multiple sort criteria are supported.")})
+    @GetMapping(value = "/search",
+                produces = {"application/json"})
+    public ResponseEntity<?> searchStudents(
+            @ApiParam(value = "start of the student name, case insensitive", example = "Jo")
+            @RequestParam(required = false)
+                    String name,
+            @ApiParam(value = "only students enrolled in this course", example = "1")
+            @RequestParam(required = false)
+                    Long courseid,
+            @ApiParam(value = "only students taking a course from this instructor", example = "1")
+            @RequestParam(required = false)
+                    Long instructid,
+            @PageableDefault(page = 0, size = 20, sort = "studname") Pageable pageable,
+            HttpServletRequest request, WebRequest webRequest)
+    {
+        logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
+
+        if (webRequest.checkNotModified(resourceVersionService.collectionTag("student", "course")))
+        {
+            return null;
+        }
+
+        Slice<Student> myStudents = studentService.search(name, courseid, instructid, pageable);
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.set("X-Has-Next", Boolean.toString(myStudents.hasNext()));
+        return new ResponseEntity<>(myStudents.getContent(), responseHeaders, HttpStatus.OK);
+    }
+
     // Swagger annotation, giving this endpoint documentation saying that it will
     // add a new student
     @ApiOperation(value = "Creates a new student", notes = "newly created studentid will be provided in response header", response = void.class)
     @ApiResponses(value = {
             @ApiResponse(code = 201, message = "Student created", response = Student.class),
-            @ApiResponse(code = 404, message = "Error creating student", response = ErrorDetail.class)
-
+            @ApiResponse(code = 404, message = "Error creating student", response = ErrorDetail.class),
+            @ApiResponse(code = 409, message = "One of the student's courses is full", response = ErrorDetail.class)
     })
     @PostMapping(value = "/Student",
                  consumes = {"application/json"},
@@ -136,12 +347,35 @@ public class StudentController
 
         return new ResponseEntity<>(null, responseHeaders, HttpStatus.CREATED);
     }
+    // Swagger annotation, giving this endpoint documentation saying that it will
+    // add many students in one request, the new studids are returned in the same order
+    @ApiOperation(value = "Creates many students at once", notes = "newly created studids are returned in the order the students were sent", responseContainer = "List", response = Long.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 201, message = "Students created", responseContainer = "List", response = Long.class),
+            @ApiResponse(code = 400, message = "Too many students", response = ErrorDetail.class),
+            @ApiResponse(code = 404, message = "Course not found", response = ErrorDetail.class),
+            @ApiResponse(code = 409, message = "A course has too few seats left for the students sent", response = ErrorDetail.class)
+    })
+    @PostMapping(value = "/bulk",
+                 consumes = {"application/json"},
+                 produces = {"application/json"})
+    public ResponseEntity<?> addNewStudents(@Valid
+                                            @RequestBody
+                                                    List<Student> newStudents, HttpServletRequest request)
+    {
+        logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
+
+        List<Long> newStudids = studentService.saveAll(newStudents);
+        return new ResponseEntity<>(newStudids, HttpStatus.CREATED);
+    }
+
     // Swagger annotation, giving this endpoint documentation saying that it will
     // update student based on student id, or create a new student if none previously
-    @ApiOperation(value = "Updates a student based on provided id", notes = "if no student existing will create student", response = void.class)
+    @ApiOperation(value = "Updates a student based on provided id", notes = "if no student existing will create student. A version being replaced can be sent in If-Match (the ETag of a write or of the GET) or the version field, the new version is returned as the ETag", response = void.class)
     @ApiResponses(value = {
             @ApiResponse(code = 201, message = "Student updated", response = Student.class),
             @ApiResponse(code = 404, message = "Could not locate student", response = ErrorDetail.class),
+            @ApiResponse(code = 409, message = "Student was changed by someone else", response = ErrorDetail.class),
             @ApiResponse(code = 500, message = "Error creating student", response = ErrorDetail.class)
     })
     @PutMapping(value = "/Student/{Studentid}")
@@ -149,14 +383,130 @@ public class StudentController
             @RequestBody
                     Student updateStudent,
             @PathVariable
-                    long Studentid, HttpServletRequest request)
+                    long Studentid,
+            @RequestHeader(value = "If-Match", required = false)
+                    String ifMatch, HttpServletRequest request)
     {
         logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
 
-        studentService.update(updateStudent, Studentid);
+        Student student = studentService.update(updateStudent, Studentid, expectedVersion(ifMatch, Studentid));
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.setETag(EntityTag.of(student.getVersion()));
+        return new ResponseEntity<>(null, responseHeaders, HttpStatus.OK);
+    }
+
+    // Swagger annotation, giving this endpoint documentation saying that it will
+    // change only the fields sent, provided the student is still at the version the client read
+    @ApiOperation(value = "Changes the fields of a student that are sent (JSON merge patch)", notes = "the version being changed comes from If-Match (the ETag of a write or of the GET) or a version field, the new version is returned as the ETag", response = void.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 204, message = "Student updated", response = void.class),
+            @ApiResponse(code = 400, message = "Field cannot be changed or version missing", response = ErrorDetail.class),
+            @ApiResponse(code = 404, message = "Could not locate student", response = ErrorDetail.class),
+            @ApiResponse(code = 409, message = "Student was changed by someone else", response = ErrorDetail.class)
+    })
+    @PatchMapping(value = "/Student/{Studentid}",
+                  consumes = {"application/merge-patch+json", "application/json"})
+    public ResponseEntity<?> patchStudent(
+            @RequestBody
+                    Map<String, Object> changes,
+            @PathVariable
+                    long Studentid,
+            @RequestHeader(value = "If-Match", required = false)
+                    String ifMatch, HttpServletRequest request)
+    {
+        logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
+
+        long version = studentService.patch(Studentid, changes, expectedVersion(ifMatch, Studentid));
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.setETag(EntityTag.of(version));
+        return new ResponseEntity<>(null, responseHeaders, HttpStatus.NO_CONTENT);
+    }
+
+    // Swagger annotation, giving this endpoint documentation saying that it will
+    // enroll a student in a course
+    @ApiOperation(value = "Enrolls a student in a course", response = void.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 201, message = "Student enrolled", response = void.class),
+            @ApiResponse(code = 200, message = "Student was already enrolled", response = void.class),
+            @ApiResponse(code = 202, message = "Enrollment queued (write-behind mode), poll the Location for the outcome", response = EnrollmentTicket.class),
+            @ApiResponse(code = 404, message = "Student or course not found", response = ErrorDetail.class),
+            @ApiResponse(code = 409, message = "Course is full", response = ErrorDetail.class)
+    })
+    @PostMapping(value = "/Student/{Studentid}/courses/{courseid}")
+    public ResponseEntity<?> enrollStudent(
+            @PathVariable
+                    long Studentid,
+            @PathVariable
+                    long courseid, HttpServletRequest request)
+    {
+        logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
+
+        if (enrollmentQueueService.isEnabled())
+        {
+            EnrollmentTicket ticket = enrollmentQueueService.submit(Studentid, courseid);
+            HttpHeaders responseHeaders = new HttpHeaders();
+            responseHeaders.setLocation(ServletUriComponentsBuilder.fromCurrentContextPath()
+                    .path("/students/enrollments/{ticket}").buildAndExpand(ticket.getTicket()).toUri());
+            return new ResponseEntity<>(ticket, responseHeaders, HttpStatus.ACCEPTED);
+        }
+
+        boolean enrolled = studentService.enroll(Studentid, courseid);
+        return new ResponseEntity<>(enrolled ? HttpStatus.CREATED : HttpStatus.OK);
+    }
+
+    // Swagger annotation, giving this endpoint documentation saying that it will
+    // tell what became of a queued enrollment
+    @ApiOperation(value = "Status of an enrollment queued in write-behind mode", response = EnrollmentTicket.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Ticket found", response = EnrollmentTicket.class),
+            @ApiResponse(code = 404, message = "Unknown or expired ticket", response = ErrorDetail.class)
+    })
+    @GetMapping(value = "/enrollments/{ticket}", produces = {"application/json"})
+    public ResponseEntity<?> getEnrollmentTicket(@PathVariable String ticket, HttpServletRequest request)
+    {
+        logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
+
+        return new ResponseEntity<>(enrollmentQueueService.findTicket(ticket), HttpStatus.OK);
+    }
+
+    // Swagger annotation, giving this endpoint documentation saying that it will
+    // take a student out of a course
+    @ApiOperation(value = "Unenrolls a student from a course", response = void.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Student unenrolled", response = void.class),
+            @ApiResponse(code = 404, message = "Student not enrolled in course", response = ErrorDetail.class)
+    })
+    @DeleteMapping("/Student/{Studentid}/courses/{courseid}")
+    public ResponseEntity<?> unenrollStudent(
+            @PathVariable
+                    long Studentid,
+            @PathVariable
+                    long courseid, HttpServletRequest request)
+    {
+        logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
+
+        studentService.unenroll(Studentid, courseid);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
+    // Swagger annotation, giving this endpoint documentation saying that it will
+    // delete many students at once, by id or by course, reporting the ids that don't exist
+    @ApiOperation(value = "Deletes students by id and/or course", notes = "with only a courseid every student enrolled in that course is deleted", response = DeleteResult.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Students deleted, missing ids listed", response = DeleteResult.class),
+            @ApiResponse(code = 400, message = "Neither ids nor courseid given", response = ErrorDetail.class)
+    })
+    @DeleteMapping(value = "/batch", produces = {"application/json"})
+    public ResponseEntity<?> deleteStudentsById(@ApiParam(value = "comma separated studids", example = "1,2,3") @RequestParam(required = false) List<Long> ids,
+                                                @ApiParam(value = "only students enrolled in this course", example = "1") @RequestParam(required = false) Long courseid,
+                                                HttpServletRequest request)
+    {
+        logger.info(request.getMethod() + " " + request.getRequestURI() + " accessed");
+
+        DeleteResult result = studentService.deleteAll(ids, courseid);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
     // Swagger annotation, giving this endpoint documentation saying that it will
     // delete a student based on student id
 
@@ -175,4 +525,22 @@ public class StudentController
         studentService.delete(Studentid);
         return new ResponseEntity<>(HttpStatus.OK);
     }
+
+    // If-Match holds the ETag of a write (the @Version) or the one GET /Student/{id} answered,
+    // which follows the student's changes instead. That one has to still be current, the write
+    // is then held to the version the student is at now.
+    private Long expectedVersion(String ifMatch, long studid)
+    {
+        if (EntityTag.isVersion(ifMatch))
+        {
+            return EntityTag.parse(ifMatch);
+        }
+        // read before the tags are compared, a change in between then fails the version check
+        long version = studentService.findStudentById(studid).getVersion();
+        if (!EntityTag.matches(ifMatch, resourceVersionService.entityTag("student", studid, "course")))
+        {
+            throw new ConflictException("Student " + studid + " has changed since it was read");
+        }
+        return version;
+    }
 }
@@ -2,6 +2,7 @@ package com.lambdaschool.school.controller;
 
 import com.lambdaschool.school.model.User;
 import com.lambdaschool.school.service.UserService;
+import com.lambdaschool.school.view.UserSummary;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -33,6 +34,15 @@ public class UserController
     }
 
 
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @GetMapping(value = "/summary", produces = {"application/json"})
+    public ResponseEntity<?> listUserSummaries()
+    {
+        List<UserSummary> mySummaries = userService.findAllSummaries();
+        return new ResponseEntity<>(mySummaries, HttpStatus.OK);
+    }
+
+
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
     @GetMapping(value = "/user/{userId}", produces = {"application/json"})
     public ResponseEntity<?> getUser(@PathVariable Long userId)
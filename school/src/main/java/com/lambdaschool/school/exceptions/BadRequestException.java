@@ -0,0 +1,20 @@
+package com.lambdaschool.school.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// thrown when a request parameter is well formed for Spring but makes no sense to us,
+// a bad paging cursor for example
+@ResponseStatus(value = HttpStatus.BAD_REQUEST)
+public class BadRequestException extends RuntimeException
+{
+    public BadRequestException(String message)
+    {
+        super(message);
+    }
+
+    public BadRequestException(String message, Throwable cause)
+    {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,14 @@
+package com.lambdaschool.school.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// thrown when a write was based on a version of the row that someone else has changed since
+@ResponseStatus(value = HttpStatus.CONFLICT)
+public class ConflictException extends RuntimeException
+{
+    public ConflictException(String message)
+    {
+        super(message);
+    }
+}
@@ -4,9 +4,12 @@ package com.lambdaschool.school.handlers;
 // we created in the exceptions package, in this case the ResourceNotFound
 // class and the ValidationError class
 
+import com.lambdaschool.school.exceptions.BadRequestException;
+import com.lambdaschool.school.exceptions.ConflictException;
 import com.lambdaschool.school.exceptions.ResourceNotFoundException;
 import com.lambdaschool.school.model.ErrorDetail;
 import org.springframework.beans.TypeMismatchException;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -39,6 +42,36 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler
         return new ResponseEntity<>(errorDetail, null, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler({BadRequestException.class})
+    public ResponseEntity<?> handleBadRequestException(BadRequestException bre, HttpServletRequest request)
+    {
+        ErrorDetail errorDetail = new ErrorDetail();
+
+        errorDetail.setTimestamp(new Date().getTime());
+        errorDetail.setStatus(HttpStatus.BAD_REQUEST.value());
+        errorDetail.setTitle("Bad Request");
+        errorDetail.setDetail(bre.getMessage());
+        errorDetail.setDeveloperMessage(bre.getClass().getName());
+
+        return new ResponseEntity<>(errorDetail, null, HttpStatus.BAD_REQUEST);
+    }
+
+    // a stale version, either caught by a conditional update or by Hibernate at flush, a
+    // full course, or a write that kept losing lock races
+    @ExceptionHandler({ConflictException.class, ConcurrencyFailureException.class})
+    public ResponseEntity<?> handleConflictException(RuntimeException ce, HttpServletRequest request)
+    {
+        ErrorDetail errorDetail = new ErrorDetail();
+
+        errorDetail.setTimestamp(new Date().getTime());
+        errorDetail.setStatus(HttpStatus.CONFLICT.value());
+        errorDetail.setTitle("Conflict");
+        errorDetail.setDetail(ce.getMessage());
+        errorDetail.setDeveloperMessage(ce.getClass().getName());
+
+        return new ResponseEntity<>(errorDetail, null, HttpStatus.CONFLICT);
+    }
+
     @Override
     protected ResponseEntity<Object> handleTypeMismatch(TypeMismatchException ex, HttpHeaders headers, HttpStatus status, WebRequest request)
     {
@@ -1,6 +1,7 @@
 package com.lambdaschool.school.model;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.CreatedBy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedBy;
@@ -31,4 +32,11 @@ abstract class Auditable
     @LastModifiedDate
     @Temporal(TIMESTAMP)
     protected Date lastModifiedDate;
+
+    // used by delta sync, not part of the JSON
+    @JsonIgnore
+    public Date getLastModifiedDate()
+    {
+        return lastModifiedDate;
+    }
 }
@@ -2,13 +2,24 @@ package com.lambdaschool.school.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import io.swagger.annotations.ApiModelProperty;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "course")
+@Table(name = "course",
+       indexes = {@Index(columnList = "lastModifiedDate"), @Index(columnList = "instructid")})
+// fetch plan used by the unpaged course listing, loads instructor and students with the courses
+@NamedEntityGraph(name = "Course.studentsAndInstructor",
+                  attributeNodes = {@NamedAttributeNode("instructor"), @NamedAttributeNode("students")})
+// second-level cached, see application.conf. Enrollments are written around the entity,
+// EnrollmentCountService evicts the students of the courses they change.
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "course")
 public class Course extends Auditable
 {
     // document as primary key for Swagger
@@ -20,11 +31,23 @@ public class Course extends Auditable
     @ApiModelProperty(name = "coursename", value = "Name", example = "Underwater Basket Weaving")
     private String coursename;
 
+    // bumped on every update, a write based on an older version is refused. The column
+    // default lets it be added to a table that already has rows.
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private long version;
+
+    // most students the course takes, no limit when null
+    @ApiModelProperty(name = "capacity", value = "Seats, unlimited when left out", example = "30")
+    private Integer capacity;
+
     @ManyToOne
     @JoinColumn(name = "instructid")
     @JsonIgnoreProperties("courses")
     private Instructor instructor;
 
+    @BatchSize(size = 50)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "course_students")
     @ManyToMany(mappedBy = "courses")
     @JsonIgnoreProperties("courses")
     private List<Student> students = new ArrayList<>();
@@ -64,6 +87,26 @@ public class Course extends Auditable
         this.coursename = coursename;
     }
 
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public void setVersion(long version)
+    {
+        this.version = version;
+    }
+
+    public Integer getCapacity()
+    {
+        return capacity;
+    }
+
+    public void setCapacity(Integer capacity)
+    {
+        this.capacity = capacity;
+    }
+
     public Instructor getInstructor()
     {
         return instructor;
@@ -0,0 +1,48 @@
+package com.lambdaschool.school.model;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+// Running count of the students enrolled in a course. Kept up to date in the same
+// transaction as every studcourses insert and delete, and rebuilt from studcourses by
+// EnrollmentCountService.reconcile, so /courses/studcount never has to GROUP BY the join table.
+@Entity
+@Table(name = "coursestudcount")
+public class CourseStudentCount
+{
+    @Id
+    private long courseid;
+
+    private int countstudents;
+
+    public CourseStudentCount()
+    {
+    }
+
+    public CourseStudentCount(long courseid, int countstudents)
+    {
+        this.courseid = courseid;
+        this.countstudents = countstudents;
+    }
+
+    public long getCourseid()
+    {
+        return courseid;
+    }
+
+    public void setCourseid(long courseid)
+    {
+        this.courseid = courseid;
+    }
+
+    public int getCountstudents()
+    {
+        return countstudents;
+    }
+
+    public void setCountstudents(int countstudents)
+    {
+        this.countstudents = countstudents;
+    }
+}
@@ -2,6 +2,9 @@ package com.lambdaschool.school.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import io.swagger.annotations.ApiModelProperty;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -9,6 +12,11 @@ import java.util.List;
 
 @Entity
 @Table(name = "instructor")
+// Course.instructor is eager, batch those loads when a page of courses comes back
+@BatchSize(size = 50)
+// second-level cached, most of those loads never reach the database
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "instructor")
 public class Instructor extends Auditable
 {
     // document as primary key for Swagger
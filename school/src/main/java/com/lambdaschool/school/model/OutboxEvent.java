@@ -0,0 +1,109 @@
+package com.lambdaschool.school.model;
+
+import javax.persistence.*;
+import java.util.Date;
+
+import static javax.persistence.TemporalType.TIMESTAMP;
+
+// a change to a student, course or enrollment, written in the transaction that made it and
+// removed once the relay has handed it to the sinks (see OutboxService)
+@Entity
+@Table(name = "outboxevents")
+public class OutboxEvent
+{
+    // ids are handed out in blocks so the events of a bulk write go out in JDBC batches
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outboxseq")
+    @SequenceGenerator(name = "outboxseq", sequenceName = "outbox_seq", allocationSize = 50)
+    private long eventid;
+
+    // student, course or enrollment
+    @Column(nullable = false)
+    private String resource;
+
+    private long resourceid;
+
+    // for an enrollment the courseid, resourceid being the studid
+    private Long relatedid;
+
+    // created, updated or deleted
+    @Column(nullable = false)
+    private String action;
+
+    @Temporal(TIMESTAMP)
+    @Column(nullable = false)
+    private Date occurred;
+
+    public OutboxEvent()
+    {
+    }
+
+    public OutboxEvent(String resource, long resourceid, Long relatedid, String action, Date occurred)
+    {
+        this.resource = resource;
+        this.resourceid = resourceid;
+        this.relatedid = relatedid;
+        this.action = action;
+        this.occurred = occurred;
+    }
+
+    public long getEventid()
+    {
+        return eventid;
+    }
+
+    public void setEventid(long eventid)
+    {
+        this.eventid = eventid;
+    }
+
+    public String getResource()
+    {
+        return resource;
+    }
+
+    public void setResource(String resource)
+    {
+        this.resource = resource;
+    }
+
+    public long getResourceid()
+    {
+        return resourceid;
+    }
+
+    public void setResourceid(long resourceid)
+    {
+        this.resourceid = resourceid;
+    }
+
+    public Long getRelatedid()
+    {
+        return relatedid;
+    }
+
+    public void setRelatedid(Long relatedid)
+    {
+        this.relatedid = relatedid;
+    }
+
+    public String getAction()
+    {
+        return action;
+    }
+
+    public void setAction(String action)
+    {
+        this.action = action;
+    }
+
+    public Date getOccurred()
+    {
+        return occurred;
+    }
+
+    public void setOccurred(Date occurred)
+    {
+        this.occurred = occurred;
+    }
+}
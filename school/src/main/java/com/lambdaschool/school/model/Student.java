@@ -1,35 +1,65 @@
 package com.lambdaschool.school.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
+import org.hibernate.annotations.BatchSize;
 
 import javax.persistence.*;
-import java.lang.reflect.Array;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 // Add annotation for Swagger to deal with the JPA Entity
 @ApiModel(value = "Student", description = "The Student Entity")
 @Entity
-@Table(name = "student")
+// on PostgreSQL the prefix search uses a pattern index on studnamekey, see config.PatternIndexes
+@Table(name = "student",
+       indexes = {@Index(columnList = "lastModifiedDate"), @Index(columnList = "studnamekey")})
+// fetch plan used by the unpaged student listing, loads courses and their instructors with the students
+@NamedEntityGraph(name = "Student.coursesAndInstructors",
+                  attributeNodes = @NamedAttributeNode(value = "courses", subgraph = "courses"),
+                  subgraphs = @NamedSubgraph(name = "courses", attributeNodes = @NamedAttributeNode("instructor")))
+// a cached Course.students holds only the ids, batch the loads of the students behind it
+@BatchSize(size = 50)
 public class Student extends Auditable
 {
     // document as primary key for Swagger
     @ApiModelProperty(name = "stuid", value = "Student table primary key", required = true, example = "1")
+    // ids come from their own sequence in blocks of 50 (pooled-lo optimizer, see
+    // application.properties) so bulk inserts don't pay a sequence round trip per row
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "studentseq")
+    @SequenceGenerator(name = "studentseq", sequenceName = "student_seq", allocationSize = 50)
     private long studid;
 
     @ApiModelProperty(name = "stuid", value = "Name of Student", required = true, example = "Bill Murray")
     private String studname;
 
+    // lower cased studname, lets name searches be an indexed prefix match
+    @JsonIgnore
+    private String studnamekey;
+
+    // bumped on every update, a write based on an older version is refused. The column
+    // default lets it be added to a table that already has rows. Boxed, so a body without a
+    // version reads as null rather than 0.
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private Long version;
+
+    // paged listings cannot fetch join a collection, so lazy loads are batched instead.
+    // A Set rather than a List, so Hibernate adds and removes single studcourses rows
+    // instead of deleting and reinserting every row of the student on any change.
+    @BatchSize(size = 50)
     @ManyToMany
+    // one row per enrollment, the key also settles two concurrent inserts of the same pair
     @JoinTable(name = "studcourses",
                joinColumns = {@JoinColumn(name = "studid")},
-               inverseJoinColumns = {@JoinColumn(name = "courseid")})
+               inverseJoinColumns = {@JoinColumn(name = "courseid")},
+               uniqueConstraints = @UniqueConstraint(name = "uk_studcourses_studid_courseid", columnNames = {"studid", "courseid"}),
+               indexes = @Index(columnList = "courseid"))
     @JsonIgnoreProperties("students")
-    private List<Course> courses = new ArrayList<>();
+    private Set<Course> courses = new HashSet<>();
 
     public Student()
     {
@@ -37,7 +67,7 @@ public class Student extends Auditable
 
     public Student(String studname)
     {
-        this.studname = studname;
+        setStudname(studname);
     }
 
     public long getStudid()
@@ -58,14 +88,30 @@ public class Student extends Auditable
     public void setStudname(String studname)
     {
         this.studname = studname;
+        this.studnamekey = studname == null ? null : studname.toLowerCase();
+    }
+
+    public String getStudnamekey()
+    {
+        return studnamekey;
+    }
+
+    public Long getVersion()
+    {
+        return version;
+    }
+
+    public void setVersion(Long version)
+    {
+        this.version = version;
     }
 
-    public List<Course> getCourses()
+    public Set<Course> getCourses()
     {
         return courses;
     }
 
-    public void setCourses(List<Course> courses)
+    public void setCourses(Set<Course> courses)
     {
         this.courses = courses;
     }
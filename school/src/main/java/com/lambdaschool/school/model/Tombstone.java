@@ -0,0 +1,79 @@
+package com.lambdaschool.school.model;
+
+import javax.persistence.*;
+import java.util.Date;
+
+import static javax.persistence.TemporalType.TIMESTAMP;
+
+// Remembers that a row was deleted so delta sync clients can be told about it.
+// Kept for school.sync.tombstone-retention-days, see TombstoneService.
+@Entity
+@Table(name = "tombstones",
+       indexes = @Index(columnList = "resource, deleted"))
+public class Tombstone
+{
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tombstoneseq")
+    @SequenceGenerator(name = "tombstoneseq", sequenceName = "tombstone_seq", allocationSize = 50)
+    private long tombstoneid;
+
+    @Column(nullable = false)
+    private String resource;
+
+    private long resourceid;
+
+    @Temporal(TIMESTAMP)
+    @Column(nullable = false)
+    private Date deleted;
+
+    public Tombstone()
+    {
+    }
+
+    public Tombstone(String resource, long resourceid, Date deleted)
+    {
+        this.resource = resource;
+        this.resourceid = resourceid;
+        this.deleted = deleted;
+    }
+
+    public long getTombstoneid()
+    {
+        return tombstoneid;
+    }
+
+    public void setTombstoneid(long tombstoneid)
+    {
+        this.tombstoneid = tombstoneid;
+    }
+
+    public String getResource()
+    {
+        return resource;
+    }
+
+    public void setResource(String resource)
+    {
+        this.resource = resource;
+    }
+
+    public long getResourceid()
+    {
+        return resourceid;
+    }
+
+    public void setResourceid(long resourceid)
+    {
+        this.resourceid = resourceid;
+    }
+
+    public Date getDeleted()
+    {
+        return deleted;
+    }
+
+    public void setDeleted(Date deleted)
+    {
+        this.deleted = deleted;
+    }
+}
@@ -1,23 +1,65 @@
 package com.lambdaschool.school.repository;
 
 import com.lambdaschool.school.model.Course;
-import com.lambdaschool.school.view.CountStudentsInCourses;
+import com.lambdaschool.school.view.CourseSummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
+import javax.persistence.QueryHint;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+
 public interface CourseRepository extends PagingAndSortingRepository<Course, Long>
 {
     ArrayList<Course> findCoursesByCoursenameEquals(String name);
 
+    // GET /courses/courses - one query for courses, instructors and students
+    @EntityGraph(value = "Course.studentsAndInstructor")
+    @Query(value = "SELECT DISTINCT c FROM Course c ORDER BY c.courseid")
+    List<Course> findAllWithStudents();
+
+    @Query(value = "SELECT c.courseid AS courseid, c.coursename AS coursename, i.instructname AS instructname FROM Course c LEFT JOIN c.instructor i ORDER BY c.courseid")
+    List<CourseSummary> findAllSummaries();
+
+    // delta sync, see view.ChangeSet
+    @Query(value = "SELECT c FROM Course c WHERE c.lastModifiedDate > :since OR (c.lastModifiedDate = :since AND c.courseid > :afterid) ORDER BY c.lastModifiedDate, c.courseid")
+    List<Course> findChangedSince(Date since, long afterid, Pageable pageable);
+
+    // paged listing without the count query a Page would need
+    @Query(value = "SELECT c FROM Course c")
+    Slice<Course> findAllSliced(Pageable pageable);
+
+    // keyset paging, see view.KeysetCursor
+    List<Course> findByCourseidGreaterThanOrderByCourseidAsc(long courseid, Pageable pageable);
+
+    @Query(value = "SELECT c FROM Course c WHERE c.coursename > :coursename OR (c.coursename = :coursename AND c.courseid > :courseid) ORDER BY c.coursename, c.courseid")
+    List<Course> findByCoursenameAfter(String coursename, long courseid, Pageable pageable);
+
+    // bulk delete, see CourseService.deleteAll
+    @Query(value = "SELECT c.courseid FROM Course c WHERE c.courseid IN :courseids")
+    List<Long> findExistingIds(Collection<Long> courseids);
+
+    @Query(value = "SELECT c.courseid FROM Course c WHERE c.instructor.instructid = :instructid ORDER BY c.courseid")
+    List<Long> findIdsByInstructid(long instructid);
+
     @Modifying
-    @Query(value = "DELETE FROM studcourses WHERE courseid = :courseid", nativeQuery = true)
-    void deleteCourseFromStudcourses(long courseid);
+    @Query(value = "DELETE FROM Course c WHERE c.courseid IN :courseids")
+    int deleteAllByIds(Collection<Long> courseids);
 
-    @Query(value = "SELECT s.courseid, coursename, count(studid) as countstudents FROM studcourses s INNER JOIN course c on s.courseid=c.courseid GROUP BY s.courseid, coursename", nativeQuery = true)
-    ArrayList<CountStudentsInCourses> getCountStudentsInCourse();
+    // served from the counters in coursestudcount rather than a GROUP BY over studcourses, and
+    // from the query cache until either table changes. Rows are {courseid, coursename, countstudents},
+    // plain values cache more reliably than a projection.
+    @QueryHints(value = {@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = "studcount")})
+    @Query(value = "SELECT c.courseid, c.coursename, cc.countstudents FROM CourseStudentCount cc, Course c WHERE cc.courseid = c.courseid AND cc.countstudents > 0")
+    List<Object[]> getCountStudentsInCourse();
 }
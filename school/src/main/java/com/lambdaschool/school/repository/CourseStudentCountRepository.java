@@ -0,0 +1,37 @@
+package com.lambdaschool.school.repository;
+
+import com.lambdaschool.school.model.CourseStudentCount;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.Collection;
+
+public interface CourseStudentCountRepository extends CrudRepository<CourseStudentCount, Long>
+{
+    @Modifying
+    @Query(value = "UPDATE CourseStudentCount c SET c.countstudents = c.countstudents + :delta WHERE c.courseid = :courseid")
+    int adjustCount(long courseid, int delta);
+
+    // takes the seats unless that would put the course over capacity
+    @Modifying
+    @Query(value = "UPDATE CourseStudentCount cc SET cc.countstudents = cc.countstudents + :students WHERE cc.courseid = :courseid AND NOT EXISTS (SELECT c FROM Course c WHERE c.courseid = :courseid AND c.capacity IS NOT NULL AND c.capacity < cc.countstudents + :students)")
+    int reserveSeats(long courseid, int students);
+
+    @Modifying
+    @Query(value = "DELETE FROM CourseStudentCount c WHERE c.courseid IN :courseids")
+    int deleteCounts(Collection<Long> courseids);
+
+    // reconciliation, see EnrollmentCountService.reconcile
+    @Modifying
+    @Query(value = "INSERT INTO coursestudcount (courseid, countstudents) SELECT c.courseid, 0 FROM course c WHERE NOT EXISTS (SELECT 1 FROM coursestudcount cc WHERE cc.courseid = c.courseid)", nativeQuery = true)
+    int insertMissingCounts();
+
+    @Modifying
+    @Query(value = "DELETE FROM coursestudcount WHERE courseid NOT IN (SELECT courseid FROM course)", nativeQuery = true)
+    int deleteOrphanedCounts();
+
+    @Modifying
+    @Query(value = "UPDATE coursestudcount SET countstudents = (SELECT COUNT(*) FROM studcourses s WHERE s.courseid = coursestudcount.courseid)", nativeQuery = true)
+    int recountAll();
+}
@@ -0,0 +1,111 @@
+package com.lambdaschool.school.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// The statements that change studcourses behind the entities. They run as plain JDBC in the
+// caller's transaction rather than as native queries on the Spring Data repositories, because
+// Hibernate can't tell what a native update touches and empties the whole second-level cache
+// after every one. Whoever calls these tells EnrollmentCountService, which evicts what changed.
+// The NOT EXISTS makes an insert of a pair that is already there a no-op. Two transactions
+// inserting the same pair at once are settled by the unique key on studcourses: the loser
+// gets a DuplicateKeyException and its callers run it again, when the NOT EXISTS finds the pair.
+@Repository
+public class EnrollmentJdbcRepository
+{
+    private static final String INSERT_ENROLLMENT = "INSERT INTO studcourses (studid, courseid) SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM studcourses WHERE studid = ? AND courseid = ?)";
+
+    @Autowired
+    @Qualifier("jdbcCustom")
+    private JdbcTemplate jdbcTemplate;
+
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @PostConstruct
+    public void init()
+    {
+        namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    // 0 when the student already had the course
+    public int insertEnrollment(long studid, long courseid)
+    {
+        return jdbcTemplate.update(INSERT_ENROLLMENT, studid, courseid, studid, courseid);
+    }
+
+    // pairs of {studid, courseid} in one JDBC batch, a 0 for each pair that was already there
+    public int[] insertEnrollments(List<long[]> pairs)
+    {
+        List<Object[]> args = new ArrayList<>(pairs.size());
+        for (long[] pair : pairs)
+        {
+            args.add(new Object[]{pair[0], pair[1], pair[0], pair[1]});
+        }
+        return jdbcTemplate.batchUpdate(INSERT_ENROLLMENT, args);
+    }
+
+    public int deleteEnrollment(long studid, long courseid)
+    {
+        return jdbcTemplate.update("DELETE FROM studcourses WHERE studid = ? AND courseid = ?", studid, courseid);
+    }
+
+    // bulk delete, see StudentService.deleteAll and CourseService.deleteAll
+    public int deleteStudcoursesOfStudents(Collection<Long> studids)
+    {
+        return namedJdbcTemplate.update("DELETE FROM studcourses WHERE studid IN (:studids)",
+                                        new MapSqlParameterSource("studids", studids));
+    }
+
+    public int deleteStudcoursesOfCourses(Collection<Long> courseids)
+    {
+        return namedJdbcTemplate.update("DELETE FROM studcourses WHERE courseid IN (:courseids)",
+                                        new MapSqlParameterSource("courseids", courseids));
+    }
+
+    // Creates the counter of a course that has none yet from what studcourses holds, less the
+    // students the caller has just added there, who are counted with the usual update after it.
+    // The course's row lock makes a second first enrollment wait and then find the counter.
+    public int seedCount(long courseid, int students)
+    {
+        jdbcTemplate.queryForList("SELECT courseid FROM course WHERE courseid = ? FOR UPDATE", Long.class, courseid);
+        return jdbcTemplate.update("INSERT INTO coursestudcount (courseid, countstudents) SELECT c.courseid, (SELECT COUNT(*) FROM studcourses s WHERE s.courseid = c.courseid) - ? FROM course c WHERE c.courseid = ? AND NOT EXISTS (SELECT 1 FROM coursestudcount cc WHERE cc.courseid = c.courseid)",
+                                   students, courseid);
+    }
+
+    // the counters of these courses counted again from studcourses
+    public int recountCourses(Collection<Long> courseids)
+    {
+        return namedJdbcTemplate.update("UPDATE coursestudcount SET countstudents = (SELECT COUNT(*) FROM studcourses s WHERE s.courseid = coursestudcount.courseid) WHERE courseid IN (:courseids)",
+                                        new MapSqlParameterSource("courseids", courseids));
+    }
+
+    // how many of these courses have more students than seats
+    public int countOverCapacity(Collection<Long> courseids)
+    {
+        Integer over = namedJdbcTemplate.queryForObject("SELECT COUNT(*) FROM coursestudcount cc JOIN course c ON c.courseid = cc.courseid WHERE c.capacity IS NOT NULL AND cc.countstudents > c.capacity AND cc.courseid IN (:courseids)",
+                                                        new MapSqlParameterSource("courseids", courseids), Integer.class);
+        return over == null ? 0 : over;
+    }
+
+    public boolean isEnrolled(long studid, long courseid)
+    {
+        Integer found = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM studcourses WHERE studid = ? AND courseid = ?", Integer.class, studid, courseid);
+        return found != null && found > 0;
+    }
+
+    // run before the students' studcourses rows go away
+    public int decrementCoursesOfStudents(Collection<Long> studids)
+    {
+        return namedJdbcTemplate.update("UPDATE coursestudcount SET countstudents = countstudents - (SELECT COUNT(*) FROM studcourses s WHERE s.courseid = coursestudcount.courseid AND s.studid IN (:studids)) WHERE courseid IN (SELECT s.courseid FROM studcourses s WHERE s.studid IN (:studids))",
+                                        new MapSqlParameterSource("studids", studids));
+    }
+}
@@ -0,0 +1,27 @@
+package com.lambdaschool.school.repository;
+
+import com.lambdaschool.school.model.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.CrudRepository;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEventRepository extends CrudRepository<OutboxEvent, Long>
+{
+    // locked, skipping rows another relay holds (SKIP LOCKED where the database has it)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(value = @QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query(value = "SELECT e FROM OutboxEvent e ORDER BY e.eventid")
+    List<OutboxEvent> findNextBatch(Pageable pageable);
+
+    @Modifying
+    @Query(value = "DELETE FROM OutboxEvent e WHERE e.eventid IN :eventids")
+    int deleteByEventids(Collection<Long> eventids);
+}
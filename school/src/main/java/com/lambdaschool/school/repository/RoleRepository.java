@@ -1,13 +1,27 @@
 package com.lambdaschool.school.repository;
 
 import com.lambdaschool.school.model.Role;
+import com.lambdaschool.school.view.RoleSummary;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.util.List;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
 public interface RoleRepository extends CrudRepository<Role, Long>
 {
+    // GET /roles/roles, the ids come from the query cache and the roles from the entity cache
+    @QueryHints(value = @QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Override
+    List<Role> findAll();
+
+    List<RoleSummary> findAllProjectedBy();
+
     @Transactional
     @Modifying
     @Query(value = "DELETE from UserRoles where userid = :userid")
@@ -18,4 +32,6 @@ public interface RoleRepository extends CrudRepository<Role, Long>
     @Query(value = "INSERT INTO UserRoles(userid, roleid) values (:userid, :roleid)", nativeQuery = true)
     void insertUserRoles(long userid, long roleid);
 
-}
\ No newline at end of file
+    @Query(value = "SELECT ur.role.roleid FROM UserRoles ur WHERE ur.user.userid = :userid")
+    List<Long> findRoleidsByUserid(long userid);
+}
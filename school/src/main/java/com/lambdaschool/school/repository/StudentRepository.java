@@ -1,13 +1,81 @@
 package com.lambdaschool.school.repository;
 
 import com.lambdaschool.school.model.Student;
-import org.springframework.data.repository.CrudRepository;
+import com.lambdaschool.school.view.StudentSummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
-import java.util.ArrayList;
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface StudentRepository extends PagingAndSortingRepository<Student, Long>
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public interface StudentRepository extends PagingAndSortingRepository<Student, Long>, JpaSpecificationExecutor<Student>
 {
     List<Student> findByStudnameContainingIgnoreCase(String name);
+
+    // enrollment changes don't go through the entity, this keeps delta sync seeing them
+    @Modifying
+    @Query(value = "UPDATE Student s SET s.lastModifiedDate = :modified WHERE s.studid = :studid")
+    int touch(long studid, Date modified);
+
+    // bulk delete, see StudentService.deleteAll
+    @Query(value = "SELECT s.studid FROM Student s WHERE s.studid IN :studids")
+    List<Long> findExistingIds(Collection<Long> studids);
+
+    @Query(value = "SELECT s.studid FROM Student s JOIN s.courses c WHERE c.courseid = :courseid ORDER BY s.studid")
+    List<Long> findIdsByCourseid(long courseid);
+
+    @Modifying
+    @Query(value = "DELETE FROM Student s WHERE s.studid IN :studids")
+    int deleteAllByIds(Collection<Long> studids);
+
+    @Modifying
+    @Query(value = "UPDATE Student s SET s.lastModifiedDate = :modified WHERE s.studid IN :studids")
+    int touchAll(Collection<Long> studids, Date modified);
+
+    // fills studnamekey for rows written before the column existed
+    @Modifying
+    @Query(value = "UPDATE Student s SET s.studnamekey = LOWER(s.studname) WHERE s.studnamekey IS NULL AND s.studname IS NOT NULL")
+    int backfillStudnamekeys();
+
+    // GET /students/allstudents - one query for students, courses and instructors
+    @EntityGraph(value = "Student.coursesAndInstructors")
+    @Query(value = "SELECT DISTINCT s FROM Student s ORDER BY s.studid")
+    List<Student> findAllWithCourses();
+
+    // export, the ids are scrolled with a JDBC fetch size instead of being read into a list,
+    // the students themselves are loaded a chunk at a time with the query below
+    @QueryHints(value = @QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(value = "SELECT s.studid FROM Student s ORDER BY s.studid")
+    Stream<Long> streamAllIds();
+
+    @EntityGraph(value = "Student.coursesAndInstructors")
+    @Query(value = "SELECT DISTINCT s FROM Student s WHERE s.studid IN :studids ORDER BY s.studid")
+    List<Student> findAllWithCoursesByIds(Collection<Long> studids);
+
+    List<StudentSummary> findAllProjectedBy(Pageable pageable);
+
+    // delta sync, see view.ChangeSet
+    @Query(value = "SELECT s FROM Student s WHERE s.lastModifiedDate > :since OR (s.lastModifiedDate = :since AND s.studid > :afterid) ORDER BY s.lastModifiedDate, s.studid")
+    List<Student> findChangedSince(Date since, long afterid, Pageable pageable);
+
+    // paged listing without the count query a Page would need
+    @Query(value = "SELECT s FROM Student s")
+    Slice<Student> findAllSliced(Pageable pageable);
+
+    // keyset paging, see view.KeysetCursor
+    List<Student> findByStudidGreaterThanOrderByStudidAsc(long studid, Pageable pageable);
+
+    @Query(value = "SELECT s FROM Student s WHERE s.studname > :studname OR (s.studname = :studname AND s.studid > :studid) ORDER BY s.studname, s.studid")
+    List<Student> findByStudnameAfter(String studname, long studid, Pageable pageable);
 }
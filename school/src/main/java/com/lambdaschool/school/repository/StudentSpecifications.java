@@ -0,0 +1,53 @@
+package com.lambdaschool.school.repository;
+
+import com.lambdaschool.school.model.Course;
+import com.lambdaschool.school.model.Student;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+
+// Filters for the student search, combined with Specification.where(..).and(..).
+// Enrollment filters are IN subqueries rather than joins so a student enrolled in several
+// matching courses still comes back once and paging stays in the database.
+public final class StudentSpecifications
+{
+    private StudentSpecifications()
+    {
+    }
+
+    // case insensitive prefix match on the indexed studnamekey column
+    public static Specification<Student> nameStartsWith(String name)
+    {
+        String pattern = name.toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+        return (root, query, builder) -> builder.like(root.get("studnamekey"), pattern, '\\');
+    }
+
+    public static Specification<Student> enrolledIn(long courseid)
+    {
+        return (root, query, builder) ->
+        {
+            Subquery<Long> enrolled = query.subquery(Long.class);
+            Root<Student> s = enrolled.from(Student.class);
+            Join<Student, Course> c = s.join("courses");
+            enrolled.select(s.get("studid")).where(builder.equal(c.get("courseid"), courseid));
+            return root.get("studid").in(enrolled);
+        };
+    }
+
+    public static Specification<Student> taughtBy(long instructid)
+    {
+        return (root, query, builder) ->
+        {
+            Subquery<Long> taught = query.subquery(Long.class);
+            Root<Student> s = taught.from(Student.class);
+            Join<Student, Course> c = s.join("courses");
+            taught.select(s.get("studid")).where(builder.equal(c.get("instructor").get("instructid"), instructid));
+            return root.get("studid").in(taught);
+        };
+    }
+}
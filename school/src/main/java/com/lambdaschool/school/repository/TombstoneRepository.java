@@ -0,0 +1,19 @@
+package com.lambdaschool.school.repository;
+
+import com.lambdaschool.school.model.Tombstone;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.Date;
+import java.util.List;
+
+public interface TombstoneRepository extends CrudRepository<Tombstone, Long>
+{
+    @Query(value = "SELECT t.resourceid FROM Tombstone t WHERE t.resource = :resource AND t.deleted >= :since ORDER BY t.deleted")
+    List<Long> findDeletedSince(String resource, Date since);
+
+    @Modifying
+    @Query(value = "DELETE FROM Tombstone t WHERE t.deleted < :before")
+    int deleteOlderThan(Date before);
+}
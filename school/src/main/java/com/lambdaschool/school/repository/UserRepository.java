@@ -1,9 +1,19 @@
 package com.lambdaschool.school.repository;
 
 import com.lambdaschool.school.model.User;
+import com.lambdaschool.school.view.UserSummary;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.List;
+
 public interface UserRepository extends CrudRepository<User, Long>
 {
     User findByUsername(String username);
+
+    // login, the user with its roles in one query
+    @Query(value = "SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.userRoles ur LEFT JOIN FETCH ur.role WHERE u.username = :username")
+    User findByUsernameWithRoles(String username);
+
+    List<UserSummary> findAllProjectedBy();
 }
@@ -0,0 +1,51 @@
+package com.lambdaschool.school.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+
+// Set based role changes, one statement whatever the number of roles or users. Plain JDBC in
+// the caller's transaction for the same reason as EnrollmentJdbcRepository: as native queries
+// Hibernate would empty the whole second-level cache after each one. Nothing cached is built
+// from userroles, so there is nothing to evict either.
+@Repository
+public class UserRolesJdbcRepository
+{
+    @Autowired
+    @Qualifier("jdbcCustom")
+    private JdbcTemplate jdbcTemplate;
+
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @PostConstruct
+    public void init()
+    {
+        namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    public int deleteUserRoles(long userid, Collection<Long> roleids)
+    {
+        return namedJdbcTemplate.update("DELETE FROM userroles WHERE userid = :userid AND roleid IN (:roleids)",
+                                        new MapSqlParameterSource("userid", userid).addValue("roleids", roleids));
+    }
+
+    // roles that don't exist are skipped
+    public int insertUserRoles(long userid, Collection<Long> roleids)
+    {
+        return namedJdbcTemplate.update("INSERT INTO userroles (userid, roleid) SELECT :userid, r.roleid FROM roles r WHERE r.roleid IN (:roleids)",
+                                        new MapSqlParameterSource("userid", userid).addValue("roleids", roleids));
+    }
+
+    // users that don't exist or already have the role are skipped
+    public int assignRoleToUsers(long roleid, Collection<Long> userids)
+    {
+        return namedJdbcTemplate.update("INSERT INTO userroles (userid, roleid) SELECT u.userid, :roleid FROM users u WHERE u.userid IN (:userids) AND NOT EXISTS (SELECT 1 FROM userroles ur WHERE ur.userid = u.userid AND ur.roleid = :roleid)",
+                                        new MapSqlParameterSource("roleid", roleid).addValue("userids", userids));
+    }
+}
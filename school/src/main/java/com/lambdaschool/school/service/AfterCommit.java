@@ -0,0 +1,31 @@
+package com.lambdaschool.school.service;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Runs an action once the surrounding transaction has committed, or right away when there
+// is none. For in-memory state that must not show a change the database might roll back.
+final class AfterCommit
+{
+    private AfterCommit()
+    {
+    }
+
+    static void run(Runnable action)
+    {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    action.run();
+                }
+            });
+        } else
+        {
+            action.run();
+        }
+    }
+}
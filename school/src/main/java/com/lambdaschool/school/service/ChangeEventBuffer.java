@@ -0,0 +1,304 @@
+package com.lambdaschool.school.service;
+
+import com.lambdaschool.school.exceptions.BadRequestException;
+import com.lambdaschool.school.view.ChangeEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// The in-process sink behind /events. Keeps the most recent change events in a ring and
+// hands them to long-poll requests waiting for something newer and to the open SSE
+// streams. Positions (seq) start over when the application restarts, so cursors carry the
+// epoch of the run they come from; a cursor from another run gets everything still in
+// the ring. The relay only queues events for the SSE streams, they are written by a pool
+// of sender threads. A write blocks while the client isn't reading, so a stream whose send
+// has been stuck for stall-ms, or that falls a ring behind, is dropped and its client
+// reconnects with Last-Event-ID. The stuck thread comes back when the container's write
+// timeout gives up on the connection; until then it is one of sender-threads, so it takes
+// that many stalled clients at once to hold up the others.
+@Component
+public class ChangeEventBuffer implements OutboxSink
+{
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final ChangeEvent[] ring;
+
+    // seq of the newest event, guarded by this
+    private long lastSeq;
+
+    private final List<Waiter> waiters = new ArrayList<>();
+
+    private final List<Stream> streams = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger streamThreads = new AtomicInteger();
+
+    private final ThreadPoolExecutor sender;
+
+    private final long stallMs;
+
+    private static class Waiter
+    {
+        final long after;
+        final int max;
+        final DeferredResult<List<ChangeEvent>> result;
+
+        Waiter(long after, int max, DeferredResult<List<ChangeEvent>> result)
+        {
+            this.after = after;
+            this.max = max;
+            this.result = result;
+        }
+    }
+
+    // an SSE stream and the events queued for it, written in order by one sender at a time
+    private static class Stream
+    {
+        final SseEmitter emitter;
+        final Queue<ChangeEvent> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicBoolean sending = new AtomicBoolean();
+        // when the send in progress started, 0 between sends
+        volatile long sendingSince;
+        volatile boolean closed;
+        // closed by us rather than by the client, the emitter still has to be completed
+        volatile boolean dropped;
+        final AtomicBoolean completed = new AtomicBoolean();
+
+        Stream(SseEmitter emitter)
+        {
+            this.emitter = emitter;
+        }
+    }
+
+    public ChangeEventBuffer(@Value("${school.outbox.buffer-size:10000}") int size,
+                             @Value("${school.events.sender-threads:16}") int senderThreads,
+                             @Value("${school.events.stall-ms:10000}") long stallMs)
+    {
+        ring = new ChangeEvent[size];
+        this.stallMs = stallMs;
+        sender = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r ->
+        {
+            Thread t = new Thread(r, "change-event-stream-" + streamThreads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        sender.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        sender.shutdownNow();
+    }
+
+    @Override
+    public void publish(List<ChangeEvent> events)
+    {
+        List<Waiter> woken;
+        synchronized (this)
+        {
+            List<ChangeEvent> published = new ArrayList<>(events.size());
+            for (ChangeEvent event : events)
+            {
+                ChangeEvent e = event.withSeq(epoch, ++lastSeq);
+                ring[(int) (lastSeq % ring.length)] = e;
+                published.add(e);
+            }
+            // queued under the lock, so every stream gets the events in seq order
+            for (Stream stream : streams)
+            {
+                enqueue(stream, published);
+            }
+            woken = new ArrayList<>(waiters);
+            waiters.clear();
+        }
+
+        for (Waiter w : woken)
+        {
+            w.result.setResult(since(w.after, w.max));
+        }
+    }
+
+    // events after the cursor now, or as soon as there are some, or an empty list at the timeout
+    public DeferredResult<List<ChangeEvent>> poll(String after, int max, long timeoutMs)
+    {
+        DeferredResult<List<ChangeEvent>> result = new DeferredResult<>(timeoutMs, Collections.emptyList());
+        synchronized (this)
+        {
+            long from = position(after);
+            List<ChangeEvent> ready = since(from, max);
+            if (!ready.isEmpty())
+            {
+                result.setResult(ready);
+                return result;
+            }
+            Waiter waiter = new Waiter(from, max, result);
+            waiters.add(waiter);
+            result.onCompletion(() -> removeWaiter(waiter));
+        }
+        return result;
+    }
+
+    // a stream of every event after the cursor, the backlog first
+    public SseEmitter subscribe(String after, long timeoutMs)
+    {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Stream stream = new Stream(emitter);
+        emitter.onCompletion(() -> close(stream));
+        emitter.onTimeout(() -> close(stream));
+        synchronized (this)
+        {
+            // the backlog is queued before publish can see the stream, newer events follow it
+            enqueue(stream, since(position(after), ring.length));
+            streams.add(stream);
+        }
+        return emitter;
+    }
+
+    // "epoch.seq" as handed out, or a bare seq as sent before cursors carried the epoch
+    private synchronized long position(String cursor)
+    {
+        try
+        {
+            int dot = cursor.indexOf('.');
+            if (dot < 0)
+            {
+                // a seq from the future comes from before a restart
+                long seq = Long.parseLong(cursor);
+                return seq > lastSeq ? 0 : seq;
+            }
+            if (!cursor.substring(0, dot).equals(epoch))
+            {
+                return 0;
+            }
+            return Long.parseLong(cursor.substring(dot + 1));
+        } catch (NumberFormatException e)
+        {
+            throw new BadRequestException("Invalid event cursor " + cursor, e);
+        }
+    }
+
+    private synchronized List<ChangeEvent> since(long after, int max)
+    {
+        long from = Math.max(after, lastSeq - ring.length);
+
+        List<ChangeEvent> events = new ArrayList<>();
+        for (long seq = from + 1; seq <= lastSeq && events.size() < max; seq++)
+        {
+            events.add(ring[(int) (seq % ring.length)]);
+        }
+        return events;
+    }
+
+    private synchronized void removeWaiter(Waiter waiter)
+    {
+        waiters.remove(waiter);
+    }
+
+    private void enqueue(Stream stream, List<ChangeEvent> events)
+    {
+        if (stream.closed || events.isEmpty())
+        {
+            return;
+        }
+        // a client more than a ring behind can't catch up from here, it reconnects with Last-Event-ID
+        if (stream.queued.addAndGet(events.size()) > ring.length)
+        {
+            drop(stream);
+            return;
+        }
+        stream.queue.addAll(events);
+        schedule(stream);
+    }
+
+    private void schedule(Stream stream)
+    {
+        if (stream.sending.compareAndSet(false, true))
+        {
+            sender.execute(() -> send(stream));
+        }
+    }
+
+    // the emitter is only ever touched here: its methods lock it, and a stuck send holds that lock
+    private void send(Stream stream)
+    {
+        try
+        {
+            ChangeEvent e;
+            while (!stream.closed && (e = stream.queue.poll()) != null)
+            {
+                stream.queued.decrementAndGet();
+                stream.sendingSince = System.currentTimeMillis();
+                stream.emitter.send(SseEmitter.event().id(e.getCursor()).name(e.getResource()).data(e, MediaType.APPLICATION_JSON));
+                stream.sendingSince = 0;
+            }
+            if (stream.dropped && stream.completed.compareAndSet(false, true))
+            {
+                stream.emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e)
+        {
+            // the client went away
+            close(stream);
+            stream.completed.set(true);
+            stream.emitter.completeWithError(e);
+        } finally
+        {
+            stream.sendingSince = 0;
+            stream.sending.set(false);
+        }
+        // events queued, or the stream dropped, after the last look but before sending was cleared
+        if (stream.dropped ? !stream.completed.get() : !stream.closed && !stream.queue.isEmpty())
+        {
+            schedule(stream);
+        }
+    }
+
+    // a client that stopped reading, its send never returns. It is only let go of here, the
+    // sender that is stuck with it completes it once the write fails or goes through.
+    @Scheduled(fixedDelayString = "${school.events.stall-check-ms:1000}")
+    public void dropStalledStreams()
+    {
+        long now = System.currentTimeMillis();
+        for (Stream stream : streams)
+        {
+            long since = stream.sendingSince;
+            if (since != 0 && now - since > stallMs)
+            {
+                drop(stream);
+            }
+        }
+    }
+
+    // what is queued for it is thrown away, the client catches up with Last-Event-ID
+    private void drop(Stream stream)
+    {
+        close(stream);
+        stream.dropped = true;
+        stream.queue.clear();
+        schedule(stream);
+    }
+
+    private void close(Stream stream)
+    {
+        stream.closed = true;
+        streams.remove(stream);
+    }
+}
@@ -1,10 +1,18 @@
 package com.lambdaschool.school.service;
 
 import com.lambdaschool.school.model.Course;
+import com.lambdaschool.school.view.BatchResult;
+import com.lambdaschool.school.view.ChangeSet;
 import com.lambdaschool.school.view.CountStudentsInCourses;
+import com.lambdaschool.school.view.CourseSummary;
+import com.lambdaschool.school.view.DeleteResult;
+import com.lambdaschool.school.view.KeysetCursor;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 public interface CourseService
 {
@@ -12,11 +20,27 @@ public interface CourseService
 
     ArrayList<Course> findAll();
 
+    Slice<Course> findSlice(Pageable pageable);
+
+    long getApproximateTotal();
+
+    ArrayList<Course> findAllAfter(KeysetCursor after, int size);
+
+    ArrayList<CourseSummary> findAllSummaries();
+
+    ChangeSet<Course> findChangedSince(String token);
+
     ArrayList<CountStudentsInCourses> getCountStudentsInCourse();
 
     void delete(long id);
 
+    DeleteResult deleteAll(List<Long> ids, Long instructid);
+
     Course findCourseById(long id);
 
+    BatchResult<Course> findCoursesById(List<Long> ids);
+
     Course save(Course course);
+
+    long patch(long id, Map<String, Object> changes, Long version);
 }
@@ -1,70 +1,416 @@
 package com.lambdaschool.school.service;
 
+import com.lambdaschool.school.exceptions.BadRequestException;
+import com.lambdaschool.school.exceptions.ConflictException;
+import com.lambdaschool.school.exceptions.ResourceNotFoundException;
 import com.lambdaschool.school.model.Course;
+import com.lambdaschool.school.model.Instructor;
 import com.lambdaschool.school.repository.CourseRepository;
+import com.lambdaschool.school.repository.EnrollmentJdbcRepository;
+import com.lambdaschool.school.repository.InstructorRepository;
+import com.lambdaschool.school.view.BatchResult;
+import com.lambdaschool.school.view.ChangeSet;
 import com.lambdaschool.school.view.CountStudentsInCourses;
+import com.lambdaschool.school.view.CourseSummary;
+import com.lambdaschool.school.view.DeleteResult;
+import com.lambdaschool.school.view.EntityTag;
+import com.lambdaschool.school.view.KeysetCursor;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
 import javax.persistence.EntityNotFoundException;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Root;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service(value = "courseService")
 public class CourseServiceImpl implements CourseService
 {
+    // most ids a single multi-get may ask for
+    private static final int MAX_BATCH_IDS = 100;
+
+    // most rows a single delta sync returns
+    private static final int MAX_CHANGES = 1000;
+
+    // ids per statement in a bulk delete
+    private static final int MAX_DELETE_IDS = 1000;
+
     @Autowired
     private CourseRepository courserepos;
 
+    @Autowired
+    private InstructorRepository instructrepos;
+
+    @Autowired
+    private EnrollmentJdbcRepository enrollmentJdbcRepository;
+
+    @Autowired
+    private EnrollmentCountService enrollmentCountService;
+
+    @Autowired
+    private TombstoneService tombstoneService;
+
+    @Autowired
+    private TotalCountService totalCountService;
+
+    @Autowired
+    private SeatReservationService seatReservationService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private SingleFlightService singleFlightService;
+
+    @Autowired
+    private AuditorAware<String> auditorAware;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    // how far a sync token is wound back to pick up transactions that commit late
+    @Value("${school.sync.overlap-ms:5000}")
+    private long syncOverlapMs;
+
+    private static class StudentCount implements CountStudentsInCourses
+    {
+        private final long courseid;
+        private final String coursename;
+        private final int countStudents;
+
+        StudentCount(long courseid, String coursename, int countStudents)
+        {
+            this.courseid = courseid;
+            this.coursename = coursename;
+            this.countStudents = countStudents;
+        }
+
+        @Override
+        public long getCourseid()
+        {
+            return courseid;
+        }
+
+        @Override
+        public String getCoursename()
+        {
+            return coursename;
+        }
+
+        @Override
+        public int getCountStudents()
+        {
+            return countStudents;
+        }
+    }
+
+    // Course.students is batch fetched, this costs a query per 50 courses
+    private static <T extends Collection<Course>> T withStudents(T courses)
+    {
+        for (Course c : courses)
+        {
+            Hibernate.initialize(c.getStudents());
+        }
+        return courses;
+    }
+
+    @Transactional(readOnly = true)
     @Override
     public ArrayList<Course> findAll(Pageable pageable)
     {
-        ArrayList<Course> list = new ArrayList<>();
-        courserepos.findAll(pageable).iterator().forEachRemaining(list::add);
-        return list;
+        return new ArrayList<>(findSlice(pageable).getContent());
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public Slice<Course> findSlice(Pageable pageable)
+    {
+        Slice<Course> slice = courserepos.findAllSliced(KeysetCursor.orderedById(pageable, "courseid"));
+        withStudents(slice.getContent());
+        return slice;
     }
 
+    @Override
+    public long getApproximateTotal()
+    {
+        return totalCountService.getTotal("courses");
+    }
+
+    // shared by concurrent callers, each gets its own copy of the list
     @Override
     public ArrayList<Course> findAll()
     {
-        ArrayList<Course> list = new ArrayList<>();
-        courserepos.findAll().iterator().forEachRemaining(list::add);
-        return list;
+        return new ArrayList<>(singleFlightService.get("courses", () ->
+        {
+            List<Course> list = new ArrayList<>();
+            courserepos.findAllWithStudents().iterator().forEachRemaining(list::add);
+            return list;
+        }, "course", "student"));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public ArrayList<Course> findAllAfter(KeysetCursor after, int size)
+    {
+        Pageable limit = PageRequest.of(0, size);
+        switch (after.getSortkey())
+        {
+            case "courseid":
+                return withStudents(new ArrayList<>(courserepos.findByCourseidGreaterThanOrderByCourseidAsc(after.getId(), limit)));
+            case "coursename":
+                return withStudents(new ArrayList<>(courserepos.findByCoursenameAfter(after.getValue(), after.getId(), limit)));
+            default:
+                throw new BadRequestException("Courses cannot be paged by " + after.getSortkey());
+        }
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public ArrayList<CourseSummary> findAllSummaries()
+    {
+        return new ArrayList<>(courserepos.findAllSummaries());
     }
 
+    @Transactional(readOnly = true)
     @Override
-    public Course findCourseById(long id)
+    public ChangeSet<Course> findChangedSince(String token)
     {
-        return null;
+        long[] since = ChangeSet.parseToken(token);
+        if (since[0] > 0 && since[0] < tombstoneService.getRetainedSince().getTime())
+        {
+            throw new BadRequestException("Sync token " + token + " has expired, sync again without a token");
+        }
+
+        long started = System.currentTimeMillis();
+        Date from = new Date(since[0]);
+        List<Course> changed = withStudents(courserepos.findChangedSince(from, since[1], PageRequest.of(0, MAX_CHANGES)));
+        List<Long> deleted = tombstoneService.findDeletedSince("course", from);
+
+        boolean more = changed.size() >= MAX_CHANGES;
+        String next;
+        if (more)
+        {
+            Course last = changed.get(changed.size() - 1);
+            next = ChangeSet.token(last.getLastModifiedDate().getTime(), last.getCourseid());
+        } else
+        {
+            next = ChangeSet.token(Math.max(since[0], started - syncOverlapMs), 0);
+        }
+        return new ChangeSet<>(next, more, changed, deleted);
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public Course findCourseById(long id) throws EntityNotFoundException
+    {
+        Course course = courserepos.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(Long.toString(id)));
+        Hibernate.initialize(course.getStudents());
+        return course;
+    }
+
+    // one IN query for the courses, their students follow in batches
+    @Transactional(readOnly = true)
+    @Override
+    public BatchResult<Course> findCoursesById(List<Long> ids)
+    {
+        LinkedHashSet<Long> wanted = BatchResult.wanted(ids, MAX_BATCH_IDS);
+        BatchResult<Course> result = BatchResult.of(wanted, courserepos.findAllById(wanted), Course::getCourseid);
+        withStudents(result.getFound());
+        return result;
+    }
+
+    @Transactional
     @Override
     public Course save(Course course)
     {
-        return null;
+        Course newCourse = new Course();
+
+        newCourse.setCoursename(course.getCoursename());
+        newCourse.setInstructor(course.getInstructor());
+        if (course.getCapacity() != null && course.getCapacity() < 0)
+        {
+            throw new BadRequestException("capacity must be left out or a number of seats");
+        }
+        newCourse.setCapacity(course.getCapacity());
+
+        newCourse = courserepos.save(newCourse);
+        enrollmentCountService.courseCreated(newCourse.getCourseid());
+        outboxService.record("course", newCourse.getCourseid(), "created");
+        totalCountService.invalidate("courses");
+        return newCourse;
     }
 
+    // JSON merge patch as a single UPDATE of the changed columns, conditional on the version
+    // the client read. Returns the new version.
+    @Transactional
     @Override
-    public ArrayList<CountStudentsInCourses> getCountStudentsInCourse()
+    public long patch(long id, Map<String, Object> changes, Long version)
+    {
+        long expected = EntityTag.expected(version, changes.get("version"));
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaUpdate<Course> update = cb.createCriteriaUpdate(Course.class);
+        Root<Course> root = update.from(Course.class);
+        for (Map.Entry<String, Object> change : changes.entrySet())
+        {
+            switch (change.getKey())
+            {
+                case "coursename":
+                    if (!(change.getValue() instanceof String) || ((String) change.getValue()).trim().isEmpty())
+                    {
+                        throw new BadRequestException("coursename must be a non empty string");
+                    }
+                    update.set(root.<String>get("coursename"), (String) change.getValue());
+                    break;
+                case "instructor":
+                    Instructor instructor = instructorOf(change.getValue());
+                    update.set(root.<Instructor>get("instructor"), instructor == null ? cb.nullLiteral(Instructor.class) : cb.literal(instructor));
+                    break;
+                case "capacity":
+                    Object capacity = change.getValue();
+                    if (capacity != null && !(capacity instanceof Integer && (Integer) capacity >= 0))
+                    {
+                        throw new BadRequestException("capacity must be null or a number of seats");
+                    }
+                    update.set(root.<Integer>get("capacity"), capacity == null ? cb.nullLiteral(Integer.class) : cb.literal((Integer) capacity));
+                    seatReservationService.forget(id);
+                    break;
+                case "courseid":
+                case "version":
+                    break;
+                default:
+                    throw new BadRequestException(change.getKey() + " cannot be changed");
+            }
+        }
+        update.set(root.<Long>get("version"), cb.sum(root.<Long>get("version"), 1L));
+        update.set(root.<Date>get("lastModifiedDate"), new Date());
+        update.set(root.<String>get("lastModifiedBy"), auditorAware.getCurrentAuditor().orElse("SYSTEM"));
+        update.where(cb.equal(root.get("courseid"), id), cb.equal(root.get("version"), expected));
+
+        if (em.createQuery(update).executeUpdate() == 0)
+        {
+            if (!courserepos.existsById(id))
+            {
+                throw new ResourceNotFoundException("Course " + id);
+            }
+            throw new ConflictException("Course " + id + " has changed since version " + expected);
+        }
+        outboxService.record("course", id, "updated");
+        return expected + 1;
+    }
+
+    // merge patch value of instructor, null removes it, otherwise {"instructid": n}
+    private Instructor instructorOf(Object value)
     {
+        if (value == null)
+        {
+            return null;
+        }
+        Object instructid = value instanceof Map ? ((Map<?, ?>) value).get("instructid") : null;
+        if (!(instructid instanceof Number))
+        {
+            throw new BadRequestException("instructor must be null or contain an instructid");
+        }
+        long iid = ((Number) instructid).longValue();
+        if (!instructrepos.existsById(iid))
+        {
+            throw new ResourceNotFoundException("Instructor " + iid);
+        }
+        return em.getReference(Instructor.class, iid);
+    }
 
-        ArrayList<CountStudentsInCourses> list = new ArrayList<>();
-        courserepos.getCountStudentsInCourse().iterator().forEachRemaining(list::add);
-        return list;
+    // the dashboards poll this, so concurrent callers share one GROUP BY
+    @Override
+    public ArrayList<CountStudentsInCourses> getCountStudentsInCourse()
+    {
+        return new ArrayList<>(singleFlightService.get("studcount", () ->
+        {
+            List<CountStudentsInCourses> list = new ArrayList<>();
+            for (Object[] row : courserepos.getCountStudentsInCourse())
+            {
+                list.add(new StudentCount((Long) row[0], (String) row[1], (Integer) row[2]));
+            }
+            return list;
+        }, "course", "student"));
     }
 
     @Transactional
     @Override
     public void delete(long id) throws EntityNotFoundException
     {
-        if (courserepos.findById(id).isPresent())
+        if (!deleteAll(Collections.singletonList(id), null).getMissing().isEmpty())
         {
-            courserepos.deleteCourseFromStudcourses(id);
-            courserepos.deleteById(id);
+            throw new EntityNotFoundException(Long.toString(id));
+        }
+    }
+
+    // The same handful of set based statements whether one course goes or a thousand, the
+    // courses are never loaded. With an instructid only that instructor's courses are
+    // deleted, all of them when no ids are given.
+    @Transactional
+    @Override
+    public DeleteResult deleteAll(List<Long> ids, Long instructid)
+    {
+        List<Long> wanted = ids == null ? new ArrayList<>() : new ArrayList<>(new LinkedHashSet<>(ids));
+        if (wanted.isEmpty() && instructid == null)
+        {
+            throw new BadRequestException("Give the ids or an instructid of the courses to delete");
+        }
+        Set<Long> existing = new HashSet<>();
+        if (instructid != null)
+        {
+            existing.addAll(courserepos.findIdsByInstructid(instructid));
+            if (wanted.isEmpty())
+            {
+                wanted.addAll(existing);
+            }
         } else
         {
-            throw new EntityNotFoundException(Long.toString(id));
+            for (int i = 0; i < wanted.size(); i += MAX_DELETE_IDS)
+            {
+                existing.addAll(courserepos.findExistingIds(wanted.subList(i, Math.min(i + MAX_DELETE_IDS, wanted.size()))));
+            }
+        }
+
+        DeleteResult result = new DeleteResult();
+        for (Long id : wanted)
+        {
+            (existing.contains(id) ? result.getDeleted() : result.getMissing()).add(id);
+        }
+
+        List<Long> deleted = result.getDeleted();
+        for (int i = 0; i < deleted.size(); i += MAX_DELETE_IDS)
+        {
+            List<Long> chunk = deleted.subList(i, Math.min(i + MAX_DELETE_IDS, deleted.size()));
+            enrollmentCountService.coursesRemoved(chunk);
+            enrollmentJdbcRepository.deleteStudcoursesOfCourses(chunk);
+            courserepos.deleteAllByIds(chunk);
+        }
+        if (!deleted.isEmpty())
+        {
+            tombstoneService.recordAll("course", deleted);
+            outboxService.recordAll("course", deleted, "deleted");
+            totalCountService.invalidate("courses");
         }
+        return result;
     }
 }
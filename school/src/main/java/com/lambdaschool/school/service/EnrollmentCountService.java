@@ -0,0 +1,26 @@
+package com.lambdaschool.school.service;
+
+import java.util.Collection;
+
+public interface EnrollmentCountService
+{
+    void courseCreated(long courseid);
+
+    void coursesRemoved(Collection<Long> courseids);
+
+    boolean enrolled(long courseid);
+
+    boolean enrolled(long courseid, int students);
+
+    boolean enrolledWithinCapacity(long courseid);
+
+    boolean enrolledWithinCapacity(long courseid, int students);
+
+    void unenrolled(long courseid);
+
+    void studentsRemoved(Collection<Long> studids);
+
+    boolean recount(Collection<Long> courseids);
+
+    void reconcile();
+}
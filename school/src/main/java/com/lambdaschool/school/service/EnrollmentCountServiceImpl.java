@@ -0,0 +1,185 @@
+package com.lambdaschool.school.service;
+
+import com.lambdaschool.school.model.CourseStudentCount;
+import com.lambdaschool.school.repository.CourseStudentCountRepository;
+import com.lambdaschool.school.repository.EnrollmentJdbcRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.Collections;
+
+// The counter updates must join the transaction that changes studcourses, so they refuse to
+// run without one, and come after its studcourses rows. A course without a counter row (one
+// that predates the table) gets one counted from studcourses on its first change. Every
+// enrollment is held to Course.capacity, whether or not its seat was taken in memory first,
+// and the in-memory free seats of a course are forgotten when they weren't. The cached
+// students of the courses involved are evicted.
+@Service(value = "enrollmentCountService")
+public class EnrollmentCountServiceImpl implements EnrollmentCountService
+{
+    private static final Logger logger = LoggerFactory.getLogger(EnrollmentCountServiceImpl.class);
+
+    @Autowired
+    private CourseStudentCountRepository countrepos;
+
+    @Autowired
+    private EnrollmentJdbcRepository enrollmentJdbcRepository;
+
+    @Autowired
+    private SeatReservationService seatReservationService;
+
+    @Autowired
+    private EntityCacheService entityCacheService;
+
+    @Autowired
+    private ApplicationEventPublisher publisher;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public void courseCreated(long courseid)
+    {
+        countrepos.save(new CourseStudentCount(courseid, 0));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public void coursesRemoved(Collection<Long> courseids)
+    {
+        countrepos.deleteCounts(courseids);
+        for (Long courseid : courseids)
+        {
+            seatReservationService.forget(courseid);
+        }
+        entityCacheService.evictCourseStudents(courseids);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public boolean enrolled(long courseid)
+    {
+        return enrolled(courseid, 1);
+    }
+
+    // enrollments that didn't take their seats in memory first (new students with courses, bulk
+    // creation, the import), checked against capacity all the same. False when the course is
+    // full, the caller then rolls back or takes the rows out again.
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public boolean enrolled(long courseid, int students)
+    {
+        if (!enrolledWithinCapacity(courseid, students))
+        {
+            return false;
+        }
+        seatReservationService.forget(courseid);
+        return true;
+    }
+
+    // the enrollment path that honours Course.capacity, false when the course is full
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public boolean enrolledWithinCapacity(long courseid)
+    {
+        return enrolledWithinCapacity(courseid, 1);
+    }
+
+    // all of the students or none of them
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public boolean enrolledWithinCapacity(long courseid, int students)
+    {
+        // a refusal rolls back, so nothing is evicted then
+        entityCacheService.evictCourseStudents(Collections.singletonList(courseid));
+        if (countrepos.reserveSeats(courseid, students) > 0)
+        {
+            return true;
+        }
+        if (countrepos.existsById(courseid))
+        {
+            return false;
+        }
+        // no counter row yet, count the course's students and check its capacity against that
+        seedCount(courseid, students);
+        return countrepos.reserveSeats(courseid, students) > 0;
+    }
+
+    private void seedCount(long courseid, int students)
+    {
+        // enrollments made through the entities have to be in studcourses to be counted
+        em.flush();
+        enrollmentJdbcRepository.seedCount(courseid, students);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public void unenrolled(long courseid)
+    {
+        countrepos.adjustCount(courseid, -1);
+        seatReservationService.release(courseid);
+        entityCacheService.evictCourseStudents(Collections.singletonList(courseid));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public void studentsRemoved(Collection<Long> studids)
+    {
+        // JDBC, Hibernate doesn't know these counters changed
+        enrollmentJdbcRepository.decrementCoursesOfStudents(studids);
+        seatReservationService.forgetAll();
+        entityCacheService.evictAllCourseStudents();
+        entityCacheService.evictStudentCounts();
+    }
+
+    // for changes whose size isn't known, e.g. a JDBC batch that reported SUCCESS_NO_INFO.
+    // False when one of the courses is now over capacity, the caller has to roll back then.
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public boolean recount(Collection<Long> courseids)
+    {
+        // JDBC, Hibernate doesn't know these counters changed
+        enrollmentJdbcRepository.recountCourses(courseids);
+        if (enrollmentJdbcRepository.countOverCapacity(courseids) > 0)
+        {
+            return false;
+        }
+        for (Long courseid : courseids)
+        {
+            seatReservationService.forget(courseid);
+        }
+        entityCacheService.evictCourseStudents(courseids);
+        entityCacheService.evictStudentCounts();
+        return true;
+    }
+
+    // rebuilds every counter from studcourses, catching anything that changed the join
+    // table behind the services' back, and once at startup for the courses without one
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${school.enrollment.reconcile.initial-delay:60000}",
+               fixedDelayString = "${school.enrollment.reconcile.delay:3600000}")
+    @Transactional
+    @Override
+    public void reconcile()
+    {
+        int added = countrepos.insertMissingCounts();
+        int removed = countrepos.deleteOrphanedCounts();
+        countrepos.recountAll();
+        seatReservationService.forgetAll();
+        publisher.publishEvent(ResourceChangedEvent.all("course"));
+
+        logger.info("Enrollment counts reconciled, " + added + " added, " + removed + " removed");
+    }
+}
@@ -0,0 +1,14 @@
+package com.lambdaschool.school.service;
+
+import com.lambdaschool.school.view.EnrollmentTicket;
+
+public interface EnrollmentQueueService
+{
+    boolean isEnabled();
+
+    EnrollmentTicket submit(long studid, long courseid);
+
+    EnrollmentTicket findTicket(String ticket);
+
+    void drain();
+}
@@ -0,0 +1,468 @@
+package com.lambdaschool.school.service;
+
+import com.lambdaschool.school.exceptions.ConflictException;
+import com.lambdaschool.school.exceptions.ResourceNotFoundException;
+import com.lambdaschool.school.repository.CourseRepository;
+import com.lambdaschool.school.repository.EnrollmentJdbcRepository;
+import com.lambdaschool.school.repository.StudentRepository;
+import com.lambdaschool.school.view.EnrollmentTicket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+// Write-behind enrollments. A request is checked, appended to a local log file and answered
+// with a ticket; a scheduled writer moves the queued enrollments into studcourses in large
+// batches. The log holds one "ticket,studid,courseid" line per enrollment and a checkpoint
+// file holds how far into it the database has caught up, so whatever was accepted but not
+// yet written is queued again after a restart. Writing an enrollment twice is harmless,
+// the insert is conditional. An enrollment only leaves the queue once the database has
+// settled it; when it can't be written for a passing reason (the database is down, the pool
+// is exhausted) the writer stops short of it and tries again on its next run.
+@Service(value = "enrollmentQueueService")
+public class EnrollmentQueueServiceImpl implements EnrollmentQueueService
+{
+    private static final Logger logger = LoggerFactory.getLogger(EnrollmentQueueServiceImpl.class);
+
+    @Autowired
+    private StudentRepository studrepos;
+
+    @Autowired
+    private CourseRepository courserepos;
+
+    @Autowired
+    private EnrollmentCountService enrollmentCountService;
+
+    @Autowired
+    private SeatReservationService seatReservationService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private EnrollmentJdbcRepository enrollmentJdbcRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${school.enrollment.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${school.enrollment.write-behind.dir:enrollment-queue}")
+    private String dir;
+
+    @Value("${school.enrollment.write-behind.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${school.enrollment.write-behind.ticket-retention-ms:3600000}")
+    private long ticketRetentionMs;
+
+    private TransactionTemplate transactionTemplate;
+
+    private FileChannel log;
+
+    private Path checkpointFile;
+
+    // bytes in the log, guarded by appendLock together with the order of pending
+    private long appended;
+
+    private final Object appendLock = new Object();
+
+    private final ConcurrentLinkedQueue<Entry> pending = new ConcurrentLinkedQueue<>();
+
+    // entries a drain could not write, ahead of pending for the next one, only touched by drain
+    private final List<Entry> retry = new ArrayList<>();
+
+    private final ConcurrentMap<String, EnrollmentTicket> tickets = new ConcurrentHashMap<>();
+
+    private static class Entry
+    {
+        final EnrollmentTicket ticket;
+        // where the entry's line ends in the log
+        final long end;
+
+        Entry(EnrollmentTicket ticket, long end)
+        {
+            this.ticket = ticket;
+            this.end = end;
+        }
+    }
+
+    @PostConstruct
+    public void open() throws IOException
+    {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        if (!enabled)
+        {
+            return;
+        }
+
+        Path queueDir = Paths.get(dir);
+        Files.createDirectories(queueDir);
+        checkpointFile = queueDir.resolve("queue.offset");
+        log = FileChannel.open(queueDir.resolve("queue.log"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long checkpoint = Files.exists(checkpointFile) ? Long.parseLong(new String(Files.readAllBytes(checkpointFile), StandardCharsets.UTF_8).trim()) : 0;
+        appended = recover(checkpoint);
+        logger.info("Enrollment write-behind queue open in " + queueDir.toAbsolutePath() + ", " + pending.size() + " enrollments to write");
+    }
+
+    @PreDestroy
+    public void close() throws IOException
+    {
+        if (log != null)
+        {
+            log.close();
+        }
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Override
+    public EnrollmentTicket submit(long studid, long courseid)
+    {
+        if (!studrepos.existsById(studid))
+        {
+            throw new ResourceNotFoundException("Student " + studid);
+        }
+        if (!courserepos.existsById(courseid))
+        {
+            throw new ResourceNotFoundException("Course " + courseid);
+        }
+        if (!seatReservationService.tryReserve(courseid))
+        {
+            // a repeat of an enrollment that exists is answered alike, full course or not
+            if (enrollmentJdbcRepository.isEnrolled(studid, courseid))
+            {
+                EnrollmentTicket ticket = new EnrollmentTicket(UUID.randomUUID().toString(), studid, courseid);
+                ticket.complete(EnrollmentTicket.Status.ALREADY_ENROLLED, null);
+                tickets.put(ticket.getTicket(), ticket);
+                return ticket;
+            }
+            throw new ConflictException("Course " + courseid + " is full");
+        }
+
+        EnrollmentTicket ticket = new EnrollmentTicket(UUID.randomUUID().toString(), studid, courseid);
+        ByteBuffer line = ByteBuffer.wrap((ticket.getTicket() + "," + studid + "," + courseid + "\n").getBytes(StandardCharsets.UTF_8));
+        try
+        {
+            synchronized (appendLock)
+            {
+                while (line.hasRemaining())
+                {
+                    appended += log.write(line, appended);
+                }
+                tickets.put(ticket.getTicket(), ticket);
+                pending.add(new Entry(ticket, appended));
+            }
+            // outside the lock, so requests arriving together share the sync to disk
+            log.force(false);
+        } catch (IOException e)
+        {
+            seatReservationService.release(courseid);
+            throw new UncheckedIOException("Enrollment queue could not be written", e);
+        }
+        return ticket;
+    }
+
+    @Override
+    public EnrollmentTicket findTicket(String ticket)
+    {
+        EnrollmentTicket found = tickets.get(ticket);
+        if (found == null)
+        {
+            throw new ResourceNotFoundException("Enrollment ticket " + ticket);
+        }
+        return found;
+    }
+
+    @Scheduled(fixedDelayString = "${school.enrollment.write-behind.drain-ms:200}")
+    @Override
+    public void drain()
+    {
+        if (!enabled)
+        {
+            return;
+        }
+
+        List<Entry> batch = nextBatch();
+        while (!batch.isEmpty())
+        {
+            Map<Entry, EnrollmentTicket.Status> outcome;
+            try
+            {
+                List<Entry> written = batch;
+                outcome = transactionTemplate.execute(status -> writeBatch(status, written));
+            } catch (RuntimeException e)
+            {
+                logger.warn("Enrollment batch of " + batch.size() + " failed, writing one at a time: " + e);
+                outcome = null;
+            }
+
+            if (outcome == null)
+            {
+                // a course ran out of seats part way or a row is bad, settle each one alone
+                outcome = new HashMap<>();
+                for (Entry entry : batch)
+                {
+                    EnrollmentTicket.Status status = writeOne(entry);
+                    if (status == null)
+                    {
+                        break;
+                    }
+                    outcome.put(entry, status);
+                }
+            }
+
+            // settled entries are a prefix of the batch, the rest waits for the database to come back
+            int settled = 0;
+            while (settled < batch.size() && outcome.containsKey(batch.get(settled)))
+            {
+                complete(batch.get(settled), outcome.get(batch.get(settled)));
+                settled++;
+            }
+            if (settled > 0)
+            {
+                checkpoint(batch.get(settled - 1).end);
+            }
+            if (settled < batch.size())
+            {
+                retry.addAll(0, batch.subList(settled, batch.size()));
+                break;
+            }
+            batch = nextBatch();
+        }
+        pruneTickets();
+    }
+
+    private List<Entry> nextBatch()
+    {
+        List<Entry> batch = new ArrayList<>();
+        while (batch.size() < batchSize && !retry.isEmpty())
+        {
+            batch.add(retry.remove(0));
+        }
+        Entry entry;
+        while (batch.size() < batchSize && (entry = pending.poll()) != null)
+        {
+            batch.add(entry);
+        }
+        return batch;
+    }
+
+    // null when the batch has to be rolled back and written entry by entry
+    private Map<Entry, EnrollmentTicket.Status> writeBatch(TransactionStatus status, List<Entry> batch)
+    {
+        List<long[]> batchPairs = new ArrayList<>(batch.size());
+        for (Entry entry : batch)
+        {
+            batchPairs.add(new long[]{entry.ticket.getStudid(), entry.ticket.getCourseid()});
+        }
+        int[] inserted = enrollmentJdbcRepository.insertEnrollments(batchPairs);
+
+        Map<Entry, EnrollmentTicket.Status> outcome = new HashMap<>();
+        Map<Long, Integer> enrolled = new HashMap<>();
+        Set<Long> studids = new HashSet<>();
+        List<long[]> pairs = new ArrayList<>();
+        for (int i = 0; i < inserted.length; i++)
+        {
+            Entry entry = batch.get(i);
+            if (inserted[i] > 0)
+            {
+                outcome.put(entry, EnrollmentTicket.Status.ENROLLED);
+                enrolled.merge(entry.ticket.getCourseid(), 1, Integer::sum);
+                studids.add(entry.ticket.getStudid());
+                pairs.add(new long[]{entry.ticket.getStudid(), entry.ticket.getCourseid()});
+            } else
+            {
+                outcome.put(entry, EnrollmentTicket.Status.ALREADY_ENROLLED);
+            }
+        }
+
+        for (Map.Entry<Long, Integer> e : enrolled.entrySet())
+        {
+            if (!enrollmentCountService.enrolledWithinCapacity(e.getKey(), e.getValue()))
+            {
+                status.setRollbackOnly();
+                return null;
+            }
+        }
+        if (!studids.isEmpty())
+        {
+            studrepos.touchAll(studids, new Date());
+        }
+        outboxService.recordEnrollments(pairs, "created");
+        return outcome;
+    }
+
+    // null when the database could not be reached or the write failed for a reason that may pass
+    private EnrollmentTicket.Status writeOne(Entry entry)
+    {
+        long studid = entry.ticket.getStudid();
+        long courseid = entry.ticket.getCourseid();
+        try
+        {
+            try
+            {
+                return transactionTemplate.execute(status -> writeOne(status, studid, courseid));
+            } catch (DuplicateKeyException e)
+            {
+                // another writer inserted the pair first, this time it is found already enrolled
+                return transactionTemplate.execute(status -> writeOne(status, studid, courseid));
+            }
+        } catch (DataIntegrityViolationException e)
+        {
+            // the student or the course was deleted since the enrollment was accepted
+            logger.warn("Enrollment " + entry.ticket.getTicket() + " failed: " + e);
+            return EnrollmentTicket.Status.FAILED;
+        } catch (RuntimeException e)
+        {
+            logger.warn("Enrollment " + entry.ticket.getTicket() + " could not be written, will retry: " + e);
+            return null;
+        }
+    }
+
+    private EnrollmentTicket.Status writeOne(TransactionStatus status, long studid, long courseid)
+    {
+        if (enrollmentJdbcRepository.insertEnrollment(studid, courseid) == 0)
+        {
+            return EnrollmentTicket.Status.ALREADY_ENROLLED;
+        }
+        if (!enrollmentCountService.enrolledWithinCapacity(courseid))
+        {
+            status.setRollbackOnly();
+            return EnrollmentTicket.Status.FULL;
+        }
+        studrepos.touch(studid, new Date());
+        outboxService.recordEnrollment(studid, courseid, "created");
+        return EnrollmentTicket.Status.ENROLLED;
+    }
+
+    private void complete(Entry entry, EnrollmentTicket.Status status)
+    {
+        long courseid = entry.ticket.getCourseid();
+        switch (status)
+        {
+            case ENROLLED:
+                seatReservationService.confirm(courseid);
+                entry.ticket.complete(status, null);
+                break;
+            case ALREADY_ENROLLED:
+                seatReservationService.release(courseid);
+                entry.ticket.complete(status, null);
+                break;
+            case FULL:
+                seatReservationService.refuse(courseid);
+                entry.ticket.complete(status, "Course " + courseid + " is full");
+                break;
+            default:
+                seatReservationService.release(courseid);
+                entry.ticket.complete(status, "Student or course no longer exists");
+        }
+    }
+
+    // Everything up to offset is in the database. Once the whole log is, start it over: the
+    // checkpoint goes back to 0 before the log is truncated, so a crash in between replays
+    // enrollments that are already written (harmless) rather than pointing past the log.
+    private void checkpoint(long offset)
+    {
+        try
+        {
+            synchronized (appendLock)
+            {
+                boolean restart = offset == appended;
+                Path tmp = checkpointFile.resolveSibling("queue.offset.tmp");
+                Files.write(tmp, Long.toString(restart ? 0 : offset).getBytes(StandardCharsets.UTF_8));
+                Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                if (restart)
+                {
+                    log.truncate(0);
+                    appended = 0;
+                }
+            }
+        } catch (IOException e)
+        {
+            // the enrollments are written, after a restart they are replayed as already enrolled
+            logger.error("Enrollment queue checkpoint failed", e);
+        }
+    }
+
+    // queues the log past the checkpoint again, returns the length of the log
+    private long recover(long checkpoint) throws IOException
+    {
+        // a log cut shorter than the checkpoint has nothing left to replay
+        checkpoint = Math.min(checkpoint, log.size());
+        ByteBuffer content = ByteBuffer.allocate((int) (log.size() - checkpoint));
+        while (content.hasRemaining())
+        {
+            if (log.read(content, checkpoint + content.position()) < 0)
+            {
+                break;
+            }
+        }
+        String text = new String(content.array(), 0, content.position(), StandardCharsets.UTF_8);
+
+        long end = checkpoint;
+        int start = 0;
+        int newline;
+        while ((newline = text.indexOf('\n', start)) >= 0)
+        {
+            String line = text.substring(start, newline);
+            end += line.getBytes(StandardCharsets.UTF_8).length + 1;
+            start = newline + 1;
+
+            String[] fields = line.split(",");
+            EnrollmentTicket ticket = new EnrollmentTicket(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]));
+            tickets.put(ticket.getTicket(), ticket);
+            pending.add(new Entry(ticket, end));
+        }
+
+        // a line cut short by a crash was never acknowledged
+        if (end < log.size())
+        {
+            log.truncate(end);
+        }
+        return end;
+    }
+
+    private void pruneTickets()
+    {
+        long cutoff = System.currentTimeMillis() - ticketRetentionMs;
+        tickets.values().removeIf(t -> t.getCompleted() != null && t.getCompleted().getTime() < cutoff);
+    }
+}
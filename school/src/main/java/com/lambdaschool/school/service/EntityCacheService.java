@@ -0,0 +1,12 @@
+package com.lambdaschool.school.service;
+
+import java.util.Collection;
+
+public interface EntityCacheService
+{
+    void evictCourseStudents(Collection<Long> courseids);
+
+    void evictAllCourseStudents();
+
+    void evictStudentCounts();
+}
@@ -0,0 +1,60 @@
+package com.lambdaschool.school.service;
+
+import com.lambdaschool.school.model.Course;
+import org.hibernate.Cache;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Evicts what Hibernate can't see change in the second-level cache: studcourses is written
+// with JDBC (see EnrollmentJdbcRepository) and from the owning side, Student.courses, so the
+// cached Course.students and the cached /courses/studcount rows are dropped here. Eviction
+// waits for the commit, before it a reader could put the old rows straight back.
+@Service(value = "entityCacheService")
+public class EntityCacheServiceImpl implements EntityCacheService
+{
+    private static final String COURSE_STUDENTS = Course.class.getName() + ".students";
+
+    private static final String STUDENT_COUNTS = "studcount";
+
+    @PersistenceUnit
+    private EntityManagerFactory emf;
+
+    private Cache cache;
+
+    @PostConstruct
+    public void init()
+    {
+        cache = emf.getCache().unwrap(Cache.class);
+    }
+
+    @Override
+    public void evictCourseStudents(Collection<Long> courseids)
+    {
+        List<Long> evicted = new ArrayList<>(courseids);
+        AfterCommit.run(() ->
+        {
+            for (Long courseid : evicted)
+            {
+                cache.evictCollectionData(COURSE_STUDENTS, courseid);
+            }
+        });
+    }
+
+    @Override
+    public void evictAllCourseStudents()
+    {
+        AfterCommit.run(() -> cache.evictCollectionData(COURSE_STUDENTS));
+    }
+
+    @Override
+    public void evictStudentCounts()
+    {
+        AfterCommit.run(() -> cache.evictQueryRegion(STUDENT_COUNTS));
+    }
+}
@@ -0,0 +1,40 @@
+package com.lambdaschool.school.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lambdaschool.school.view.ChangeEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// appends the change events to a file as newline delimited JSON, for consumers that tail a
+// file. Only there when school.outbox.file.path is set.
+@Component
+@ConditionalOnProperty(name = "school.outbox.file.path")
+public class FileOutboxSink implements OutboxSink
+{
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${school.outbox.file.path}")
+    private String path;
+
+    @Override
+    public synchronized void publish(List<ChangeEvent> events) throws IOException
+    {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        for (ChangeEvent event : events)
+        {
+            lines.write(objectMapper.writeValueAsBytes(event));
+            lines.write('\n');
+        }
+        Files.write(Paths.get(path), lines.toByteArray(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
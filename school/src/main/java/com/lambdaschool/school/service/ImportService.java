@@ -0,0 +1,18 @@
+package com.lambdaschool.school.service;
+
+import com.lambdaschool.school.view.ImportReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface ImportService
+{
+    // studname
+    ImportReport importStudents(InputStream csv) throws IOException;
+
+    // coursename,instructid
+    ImportReport importCourses(InputStream csv) throws IOException;
+
+    // studid,courseid
+    ImportReport importEnrollments(InputStream csv) throws IOException;
+}
@@ -0,0 +1,366 @@
+package com.lambdaschool.school.service;
+
+import com.lambdaschool.school.exceptions.ConflictException;
+import com.lambdaschool.school.model.Course;
+import com.lambdaschool.school.model.Instructor;
+import com.lambdaschool.school.model.Student;
+import com.lambdaschool.school.repository.CourseRepository;
+import com.lambdaschool.school.repository.EnrollmentJdbcRepository;
+import com.lambdaschool.school.repository.StudentRepository;
+import com.lambdaschool.school.view.ImportReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Streams a CSV upload line by line and hands it to a bounded pool in chunks, each chunk is
+// written in a transaction of its own. When every worker is busy and the queue is full the
+// request thread writes the next chunk itself, which stops it reading the upload until the
+// pool catches up, so memory stays at a few chunks however large the file is.
+@Service(value = "importService")
+public class ImportServiceImpl implements ImportService
+{
+    private static final Logger logger = LoggerFactory.getLogger(ImportServiceImpl.class);
+
+    @Autowired
+    private StudentRepository studrepos;
+
+    @Autowired
+    private CourseRepository courserepos;
+
+    @Autowired
+    private EnrollmentCountService enrollmentCountService;
+
+    @Autowired
+    private TotalCountService totalCountService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private EnrollmentJdbcRepository enrollmentJdbcRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Value("${school.import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${school.import.threads:4}")
+    private int threads;
+
+    @Value("${school.import.queue:8}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    private TransactionTemplate transactionTemplate;
+
+    // a chunk writer gets the parsed rows and returns how many it wrote
+    private interface ChunkWriter
+    {
+        int write(List<String[]> rows);
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                                          new ArrayBlockingQueue<>(queueCapacity),
+                                          r ->
+                                          {
+                                              Thread t = new Thread(r, "csv-import-" + threadNumber.incrementAndGet());
+                                              t.setDaemon(true);
+                                              return t;
+                                          },
+                                          new ThreadPoolExecutor.CallerRunsPolicy());
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        executor.shutdown();
+    }
+
+    @Override
+    public ImportReport importStudents(InputStream csv) throws IOException
+    {
+        return run("students", csv, rows ->
+        {
+            List<Student> students = new ArrayList<>(rows.size());
+            for (String[] row : rows)
+            {
+                students.add(new Student(field(row, 0)));
+            }
+            studrepos.saveAll(students);
+            List<Long> studids = new ArrayList<>(students.size());
+            for (Student s : students)
+            {
+                studids.add(s.getStudid());
+            }
+            outboxService.recordAll("student", studids, "created");
+            totalCountService.invalidate("students");
+            return students.size();
+        });
+    }
+
+    @Override
+    public ImportReport importCourses(InputStream csv) throws IOException
+    {
+        return run("courses", csv, rows ->
+        {
+            List<Course> courses = new ArrayList<>(rows.size());
+            for (String[] row : rows)
+            {
+                String instructid = row.length > 1 ? row[1].trim() : "";
+                Instructor instructor = instructid.isEmpty() ? null : em.getReference(Instructor.class, Long.parseLong(instructid));
+                courses.add(new Course(field(row, 0), instructor));
+            }
+            courserepos.saveAll(courses);
+            List<Long> courseids = new ArrayList<>(courses.size());
+            for (Course c : courses)
+            {
+                enrollmentCountService.courseCreated(c.getCourseid());
+                courseids.add(c.getCourseid());
+            }
+            outboxService.recordAll("course", courseids, "created");
+            totalCountService.invalidate("courses");
+            return courses.size();
+        });
+    }
+
+    @Override
+    public ImportReport importEnrollments(InputStream csv) throws IOException
+    {
+        return run("enrollments", csv, rows ->
+        {
+            List<long[]> rowPairs = new ArrayList<>(rows.size());
+            for (String[] row : rows)
+            {
+                rowPairs.add(new long[]{Long.parseLong(field(row, 0)), Long.parseLong(field(row, 1))});
+            }
+            int[] inserted = enrollmentJdbcRepository.insertEnrollments(rowPairs);
+
+            // pairs that were already there insert nothing and leave the counters alone. A driver
+            // may answer a batch with SUCCESS_NO_INFO, those pairs are taken as enrolled and the
+            // counters of their courses are counted again instead of adjusted.
+            Map<Long, List<long[]>> added = new HashMap<>();
+            Set<Long> recount = new HashSet<>();
+            List<long[]> pairs = new ArrayList<>();
+            for (int i = 0; i < inserted.length; i++)
+            {
+                long[] pair = rowPairs.get(i);
+                if (inserted[i] > 0)
+                {
+                    added.computeIfAbsent(pair[1], k -> new ArrayList<>()).add(pair);
+                } else if (inserted[i] == Statement.SUCCESS_NO_INFO)
+                {
+                    recount.add(pair[1]);
+                    pairs.add(pair);
+                }
+            }
+
+            for (Map.Entry<Long, List<long[]>> e : added.entrySet())
+            {
+                if (recount.contains(e.getKey()) || enrollmentCountService.enrolled(e.getKey(), e.getValue().size()))
+                {
+                    pairs.addAll(e.getValue());
+                } else
+                {
+                    // not enough seats left for this chunk's rows of the course, they are skipped
+                    for (long[] pair : e.getValue())
+                    {
+                        enrollmentJdbcRepository.deleteEnrollment(pair[0], pair[1]);
+                    }
+                    logger.warn("Course " + e.getKey() + " is full, " + e.getValue().size() + " enrollments skipped");
+                }
+            }
+            // the rows behind a recount can't be told apart, a course over capacity fails the chunk
+            if (!recount.isEmpty() && !enrollmentCountService.recount(recount))
+            {
+                throw new ConflictException("The chunk would put a course over capacity");
+            }
+
+            Set<Long> studids = new HashSet<>();
+            for (long[] pair : pairs)
+            {
+                studids.add(pair[0]);
+            }
+            if (!studids.isEmpty())
+            {
+                studrepos.touchAll(studids, new Date());
+            }
+            outboxService.recordEnrollments(pairs, "created");
+            return pairs.size();
+        });
+    }
+
+    private ImportReport run(String kind, InputStream csv, ChunkWriter writer) throws IOException
+    {
+        ImportReport report = new ImportReport(kind);
+        List<Future<ImportReport.ChunkError>> pending = new ArrayList<>();
+        AtomicLong written = new AtomicLong();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8));
+        // first line is the header
+        String line = reader.readLine();
+        long lineNumber = 1;
+        long firstLine = 2;
+        List<String[]> rows = new ArrayList<>(chunkSize);
+        while ((line = reader.readLine()) != null)
+        {
+            lineNumber++;
+            if (line.trim().isEmpty())
+            {
+                continue;
+            }
+            if (rows.isEmpty())
+            {
+                firstLine = lineNumber;
+            }
+            rows.add(parseLine(line));
+            if (rows.size() == chunkSize)
+            {
+                pending.add(submit(writer, rows, firstLine, lineNumber, written));
+                report.setRows(report.getRows() + rows.size());
+                rows = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!rows.isEmpty())
+        {
+            pending.add(submit(writer, rows, firstLine, lineNumber, written));
+            report.setRows(report.getRows() + rows.size());
+        }
+
+        for (Future<ImportReport.ChunkError> f : pending)
+        {
+            try
+            {
+                ImportReport.ChunkError error = f.get();
+                if (error != null)
+                {
+                    report.getFailed().add(error);
+                }
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException("Import of " + kind + " interrupted", e);
+            } catch (ExecutionException e)
+            {
+                // chunk failures are caught in the task, this is a bug
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        report.setChunks(pending.size());
+        report.setWritten(written.get());
+        logger.info("Imported " + kind + ": " + report.getWritten() + " of " + report.getRows() + " rows written, " + report.getFailed().size() + " of " + report.getChunks() + " chunks failed");
+        return report;
+    }
+
+    private Future<ImportReport.ChunkError> submit(ChunkWriter writer, List<String[]> rows, long firstLine, long lastLine, AtomicLong written)
+    {
+        return executor.submit(() ->
+        {
+            try
+            {
+                Integer n;
+                try
+                {
+                    n = transactionTemplate.execute(status -> writer.write(rows));
+                } catch (DuplicateKeyException e)
+                {
+                    // lost an insert race on studcourses to another chunk, again the pair is found
+                    n = transactionTemplate.execute(status -> writer.write(rows));
+                }
+                written.addAndGet(n);
+                return null;
+            } catch (RuntimeException e)
+            {
+                logger.warn("Import chunk at lines " + firstLine + "-" + lastLine + " rolled back: " + e);
+                return new ImportReport.ChunkError(firstLine, lastLine, e.getMessage());
+            }
+        });
+    }
+
+    private static String field(String[] row, int i)
+    {
+        if (i >= row.length || row[i].trim().isEmpty())
+        {
+            throw new IllegalArgumentException("Missing column " + (i + 1));
+        }
+        return row[i].trim();
+    }
+
+    // comma separated, fields may be double quoted with "" for a quote inside them
+    private static String[] parseLine(String line)
+    {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++)
+        {
+            char c = line.charAt(i);
+            if (quoted)
+            {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"')
+                {
+                    field.append('"');
+                    i++;
+                } else if (c == '"')
+                {
+                    quoted = false;
+                } else
+                {
+                    field.append(c);
+                }
+            } else if (c == '"')
+            {
+                quoted = true;
+            } else if (c == ',')
+            {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else
+            {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,16 @@
+package com.lambdaschool.school.service;
+
+import java.util.Collection;
+
+public interface OutboxService
+{
+    void record(String resource, long resourceid, String action);
+
+    void recordAll(String resource, Collection<Long> resourceids, String action);
+
+    void recordEnrollment(long studid, long courseid, String action);
+
+    void recordEnrollments(Collection<long[]> enrollments, String action);
+
+    void relay();
+}
@@ -0,0 +1,159 @@
+package com.lambdaschool.school.service;
+
+import com.lambdaschool.school.model.OutboxEvent;
+import com.lambdaschool.school.repository.OutboxEventRepository;
+import com.lambdaschool.school.view.ChangeEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Transactional outbox. The student, course and enrollment writes add their events here in
+// their own transaction, so an event exists exactly when its change committed. The relay
+// moves them to the sinks in batches and deletes what it delivered. Each change is also
+// published in-process as a ResourceChangedEvent, for the caches to act on after the commit.
+@Service(value = "outboxService")
+public class OutboxServiceImpl implements OutboxService
+{
+    private static final Logger logger = LoggerFactory.getLogger(OutboxServiceImpl.class);
+
+    @Autowired
+    private OutboxEventRepository outboxrepos;
+
+    @Autowired
+    private List<OutboxSink> sinks;
+
+    @Autowired
+    private ApplicationEventPublisher publisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${school.outbox.batch-size:500}")
+    private int batchSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void createTransactionTemplate()
+    {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public void record(String resource, long resourceid, String action)
+    {
+        outboxrepos.save(new OutboxEvent(resource, resourceid, null, action, new Date()));
+        publisher.publishEvent(ResourceChangedEvent.of(resource, resourceid));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public void recordAll(String resource, Collection<Long> resourceids, String action)
+    {
+        Date occurred = new Date();
+        List<OutboxEvent> events = new ArrayList<>(resourceids.size());
+        for (Long id : resourceids)
+        {
+            events.add(new OutboxEvent(resource, id, null, action, occurred));
+        }
+        outboxrepos.saveAll(events);
+        publisher.publishEvent(new ResourceChangedEvent(resource, new ArrayList<>(resourceids)));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public void recordEnrollment(long studid, long courseid, String action)
+    {
+        outboxrepos.save(new OutboxEvent("enrollment", studid, courseid, action, new Date()));
+        publisher.publishEvent(ResourceChangedEvent.of("student", studid));
+        publisher.publishEvent(ResourceChangedEvent.of("course", courseid));
+    }
+
+    // each element is {studid, courseid}
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public void recordEnrollments(Collection<long[]> enrollments, String action)
+    {
+        Date occurred = new Date();
+        List<OutboxEvent> events = new ArrayList<>(enrollments.size());
+        Set<Long> studids = new HashSet<>();
+        Set<Long> courseids = new HashSet<>();
+        for (long[] e : enrollments)
+        {
+            events.add(new OutboxEvent("enrollment", e[0], e[1], action, occurred));
+            studids.add(e[0]);
+            courseids.add(e[1]);
+        }
+        outboxrepos.saveAll(events);
+        if (!events.isEmpty())
+        {
+            publisher.publishEvent(new ResourceChangedEvent("student", studids));
+            publisher.publishEvent(new ResourceChangedEvent("course", courseids));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${school.outbox.relay-ms:500}")
+    @Override
+    public void relay()
+    {
+        int relayed;
+        do
+        {
+            try
+            {
+                relayed = transactionTemplate.execute(status -> relayBatch());
+            } catch (RuntimeException e)
+            {
+                logger.warn("Outbox relay failed, will retry: " + e);
+                return;
+            }
+        } while (relayed == batchSize);
+    }
+
+    private int relayBatch()
+    {
+        List<OutboxEvent> batch = outboxrepos.findNextBatch(PageRequest.of(0, batchSize));
+        if (batch.isEmpty())
+        {
+            return 0;
+        }
+
+        List<ChangeEvent> events = new ArrayList<>(batch.size());
+        List<Long> eventids = new ArrayList<>(batch.size());
+        for (OutboxEvent e : batch)
+        {
+            events.add(new ChangeEvent(e));
+            eventids.add(e.getEventid());
+        }
+        for (OutboxSink sink : sinks)
+        {
+            try
+            {
+                sink.publish(events);
+            } catch (Exception e)
+            {
+                throw new IllegalStateException(sink.getClass().getSimpleName() + " could not publish", e);
+            }
+        }
+        outboxrepos.deleteByEventids(eventids);
+        return batch.size();
+    }
+}
@@ -0,0 +1,13 @@
+package com.lambdaschool.school.service;
+
+import com.lambdaschool.school.view.ChangeEvent;
+
+import java.util.List;
+
+// where the outbox relay delivers change events. Every bean implementing this gets every
+// batch, in order. A sink that throws makes the relay try the batch again later, so
+// sinks see events at least once.
+public interface OutboxSink
+{
+    void publish(List<ChangeEvent> events) throws Exception;
+}
@@ -0,0 +1,40 @@
+package com.lambdaschool.school.service;
+
+import java.util.Collection;
+import java.util.Collections;
+
+// Published by the service writes for the in-process caches, which listen for it after the
+// commit. resource is "student", "course", "role" or "user"; an enrollment changes both its
+// student and its course. No ids means any of them may have changed.
+public class ResourceChangedEvent
+{
+    private final String resource;
+
+    private final Collection<Long> ids;
+
+    public ResourceChangedEvent(String resource, Collection<Long> ids)
+    {
+        this.resource = resource;
+        this.ids = Collections.unmodifiableCollection(ids);
+    }
+
+    public static ResourceChangedEvent of(String resource, long id)
+    {
+        return new ResourceChangedEvent(resource, Collections.singletonList(id));
+    }
+
+    public static ResourceChangedEvent all(String resource)
+    {
+        return new ResourceChangedEvent(resource, Collections.emptyList());
+    }
+
+    public String getResource()
+    {
+        return resource;
+    }
+
+    public Collection<Long> getIds()
+    {
+        return ids;
+    }
+}
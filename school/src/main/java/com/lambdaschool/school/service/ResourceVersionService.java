@@ -0,0 +1,8 @@
+package com.lambdaschool.school.service;
+
+public interface ResourceVersionService
+{
+    String collectionTag(String... resources);
+
+    String entityTag(String resource, long id, String... dependencies);
+}
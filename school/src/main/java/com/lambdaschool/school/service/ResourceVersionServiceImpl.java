@@ -0,0 +1,126 @@
+package com.lambdaschool.school.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheWriter;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Versions behind the ETags of the GET endpoints, so a poll that has seen the current state
+// is answered 304 from memory, before the database or Jackson are involved. Every change
+// takes the next tick of a clock once its transaction has committed (ResourceChangedEvent);
+// a collection is at the tick of its latest change and an entity at the tick of its own.
+// Only the most recently changed entities are remembered, one that was forgotten is taken
+// to be at the newest tick forgotten. The clock starts over on a restart, the boot id in
+// every tag keeps old tags from matching. Versions are per instance: writes made through
+// another instance are not seen here.
+@Service(value = "resourceVersionService")
+public class ResourceVersionServiceImpl implements ResourceVersionService
+{
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final ConcurrentMap<String, Long> collections = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, EntityVersions> entities = new ConcurrentHashMap<>();
+
+    private final long maxEntities;
+
+    private static class EntityVersions
+    {
+        // the newest tick of an entity no longer in versions
+        final AtomicLong floor = new AtomicLong();
+
+        final Cache<Long, Long> versions;
+
+        EntityVersions(long maxEntities)
+        {
+            // the writer runs before the entry is gone, so a reader never misses both
+            versions = Caffeine.newBuilder()
+                    .maximumSize(maxEntities)
+                    .writer(new CacheWriter<Long, Long>()
+                    {
+                        @Override
+                        public void write(Long id, Long tick)
+                        {
+                        }
+
+                        @Override
+                        public void delete(Long id, Long tick, RemovalCause cause)
+                        {
+                            if (tick != null)
+                            {
+                                floor.accumulateAndGet(tick, Math::max);
+                            }
+                        }
+                    })
+                    .build();
+        }
+
+        long get(long id)
+        {
+            Long tick = versions.getIfPresent(id);
+            return tick != null ? tick : floor.get();
+        }
+    }
+
+    public ResourceVersionServiceImpl(@Value("${school.etag.max-entities:100000}") long maxEntities)
+    {
+        this.maxEntities = maxEntities;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onResourceChanged(ResourceChangedEvent event)
+    {
+        long tick = clock.incrementAndGet();
+        collections.merge(event.getResource(), tick, Math::max);
+
+        EntityVersions versions = entities.computeIfAbsent(event.getResource(), r -> new EntityVersions(maxEntities));
+        if (event.getIds().isEmpty())
+        {
+            versions.floor.accumulateAndGet(tick, Math::max);
+            versions.versions.invalidateAll();
+        } else
+        {
+            for (Long id : event.getIds())
+            {
+                versions.versions.put(id, tick);
+            }
+        }
+    }
+
+    // a listing showing these resources, e.g. students with their courses
+    @Override
+    public String collectionTag(String... resources)
+    {
+        StringBuilder tag = new StringBuilder("\"").append(bootId);
+        for (String resource : resources)
+        {
+            tag.append('-').append(collections.getOrDefault(resource, 0L));
+        }
+        return tag.append('"').toString();
+    }
+
+    // one entity, along with the collections of anything shown inside it
+    @Override
+    public String entityTag(String resource, long id, String... dependencies)
+    {
+        EntityVersions versions = entities.get(resource);
+        StringBuilder tag = new StringBuilder("\"").append(bootId)
+                .append('-').append(resource.charAt(0)).append(id)
+                .append('-').append(versions != null ? versions.get(id) : 0L);
+        for (String dependency : dependencies)
+        {
+            tag.append('-').append(collections.getOrDefault(dependency, 0L));
+        }
+        return tag.append('"').toString();
+    }
+}
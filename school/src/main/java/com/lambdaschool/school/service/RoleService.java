@@ -1,6 +1,8 @@
 package com.lambdaschool.school.service;
 
 import com.lambdaschool.school.model.Role;
+import com.lambdaschool.school.view.RoleAssignment;
+import com.lambdaschool.school.view.RoleSummary;
 
 import java.util.List;
 
@@ -8,9 +10,13 @@ public interface RoleService
 {
     List<Role> findAll();
 
+    List<RoleSummary> findAllSummaries();
+
     Role findRoleById(long id);
 
     void delete(long id);
 
     Role save(Role role);
+
+    RoleAssignment assignToUsers(long roleid, List<Long> userids);
 }
@@ -2,41 +2,85 @@ package com.lambdaschool.school.service;
 
 import com.lambdaschool.school.exceptions.ResourceNotFoundException;
 import com.lambdaschool.school.model.Role;
+import com.lambdaschool.school.model.UserRoles;
 import com.lambdaschool.school.repository.RoleRepository;
+import com.lambdaschool.school.repository.UserRolesJdbcRepository;
+import com.lambdaschool.school.view.RoleAssignment;
+import com.lambdaschool.school.view.RoleSummary;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 @Service(value = "roleService")
 public class RoleServiceImpl implements RoleService
 {
+    // userids per insert when assigning a role in bulk, keeps the IN list a sane size
+    private static final int ASSIGN_CHUNK = 1000;
+
     @Autowired
     RoleRepository rolerepos;
 
+    @Autowired
+    private UserRolesJdbcRepository userRolesJdbcRepository;
+
+    @Autowired
+    private UserDetailsCacheService userDetailsCacheService;
+
+    @Autowired
+    private ApplicationEventPublisher publisher;
+
+    private static Role withUsers(Role role)
+    {
+        for (UserRoles ur : role.getUserRoles())
+        {
+            Hibernate.initialize(ur.getUser());
+        }
+        return role;
+    }
+
+    @Transactional(readOnly = true)
     @Override
     public List<Role> findAll()
     {
         List<Role> list = new ArrayList<>();
         rolerepos.findAll().iterator().forEachRemaining(list::add);
+        list.forEach(RoleServiceImpl::withUsers);
         return list;
     }
 
 
+    @Transactional(readOnly = true)
+    @Override
+    public List<RoleSummary> findAllSummaries()
+    {
+        return rolerepos.findAllProjectedBy();
+    }
+
+
+    @Transactional(readOnly = true)
     @Override
     public Role findRoleById(long id)
     {
-        return rolerepos.findById(id).orElseThrow(() -> new ResourceNotFoundException(Long.toString(id)));
+        return withUsers(rolerepos.findById(id).orElseThrow(() -> new ResourceNotFoundException(Long.toString(id))));
     }
 
 
+    // the role goes from every user that had it, so every cached login may be out of date
+    @Transactional
     @Override
     public void delete(long id)
     {
         rolerepos.findById(id).orElseThrow(() -> new ResourceNotFoundException(Long.toString(id)));
         rolerepos.deleteById(id);
+        userDetailsCacheService.evictAll();
+        publisher.publishEvent(ResourceChangedEvent.of("role", id));
+        publisher.publishEvent(ResourceChangedEvent.all("user"));
     }
 
 
@@ -44,7 +88,42 @@ public class RoleServiceImpl implements RoleService
     @Override
     public Role save(Role role)
     {
-        return rolerepos.save(role);
+        // renaming a role changes the authorities of everyone who has it
+        boolean existing = role.getRoleid() != 0 && rolerepos.existsById(role.getRoleid());
+        Role newRole = rolerepos.save(role);
+        if (existing)
+        {
+            userDetailsCacheService.evictAll();
+            publisher.publishEvent(ResourceChangedEvent.all("user"));
+        }
+        publisher.publishEvent(ResourceChangedEvent.of("role", newRole.getRoleid()));
+        return newRole;
+    }
+
+
+    // one insert per thousand users instead of one per user
+    @Transactional
+    @Override
+    public RoleAssignment assignToUsers(long roleid, List<Long> userids)
+    {
+        if (!rolerepos.existsById(roleid))
+        {
+            throw new ResourceNotFoundException(Long.toString(roleid));
+        }
+
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(userids));
+        int assigned = 0;
+        for (int i = 0; i < distinct.size(); i += ASSIGN_CHUNK)
+        {
+            assigned += userRolesJdbcRepository.assignRoleToUsers(roleid, distinct.subList(i, Math.min(i + ASSIGN_CHUNK, distinct.size())));
+        }
+        if (assigned > 0)
+        {
+            userDetailsCacheService.evictAll();
+            publisher.publishEvent(ResourceChangedEvent.of("role", roleid));
+            publisher.publishEvent(new ResourceChangedEvent("user", distinct));
+        }
+        return new RoleAssignment(roleid, distinct.size(), assigned);
     }
 }
 
@@ -0,0 +1,16 @@
+package com.lambdaschool.school.service;
+
+public interface SeatReservationService
+{
+    boolean tryReserve(long courseid);
+
+    void confirm(long courseid);
+
+    void refuse(long courseid);
+
+    void release(long courseid);
+
+    void forget(long courseid);
+
+    void forgetAll();
+}
@@ -0,0 +1,143 @@
+package com.lambdaschool.school.service;
+
+import com.lambdaschool.school.model.Course;
+import com.lambdaschool.school.model.CourseStudentCount;
+import com.lambdaschool.school.repository.CourseRepository;
+import com.lambdaschool.school.repository.CourseStudentCountRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Free seats per course held in memory, so a registration rush on a full course is turned
+// away with a compare-and-set instead of queueing on the course's counter row. The
+// database stays the authority: an admitted enrollment still takes its seat with a
+// conditional update, and a course is reloaded from the database whenever the two may
+// disagree.
+@Service(value = "seatReservationService")
+public class SeatReservationServiceImpl implements SeatReservationService
+{
+    // stands in for courses without a capacity
+    private static final AtomicInteger UNLIMITED = new AtomicInteger(Integer.MAX_VALUE);
+
+    @Autowired
+    private CourseRepository courserepos;
+
+    @Autowired
+    private CourseStudentCountRepository countrepos;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<Long, AtomicInteger> freeSeats = new ConcurrentHashMap<>();
+
+    private Counter admitted;
+
+    private Counter rejected;
+
+    @PostConstruct
+    public void registerMeters()
+    {
+        admitted = Counter.builder("school.enrollment.seats").tag("result", "admitted")
+                .description("Enrollments that got a seat").register(meterRegistry);
+        rejected = Counter.builder("school.enrollment.seats").tag("result", "rejected")
+                .description("Enrollments turned away because the course was full").register(meterRegistry);
+    }
+
+    @Override
+    public boolean tryReserve(long courseid)
+    {
+        AtomicInteger seats = freeSeats.get(courseid);
+        if (seats == null)
+        {
+            seats = load(courseid);
+            if (seats == null)
+            {
+                // no such course, the enrollment itself answers 404
+                return true;
+            }
+            AtomicInteger raced = freeSeats.putIfAbsent(courseid, seats);
+            if (raced != null)
+            {
+                seats = raced;
+            }
+        }
+        if (seats == UNLIMITED)
+        {
+            return true;
+        }
+
+        int free;
+        do
+        {
+            free = seats.get();
+            if (free <= 0)
+            {
+                rejected.increment();
+                return false;
+            }
+        } while (!seats.compareAndSet(free, free - 1));
+        return true;
+    }
+
+    @Override
+    public void confirm(long courseid)
+    {
+        admitted.increment();
+    }
+
+    // the database found the course full although memory had a seat
+    @Override
+    public void refuse(long courseid)
+    {
+        rejected.increment();
+        freeSeats.remove(courseid);
+    }
+
+    @Override
+    public void release(long courseid)
+    {
+        AfterCommit.run(() ->
+        {
+            AtomicInteger seats = freeSeats.get(courseid);
+            if (seats != null && seats != UNLIMITED)
+            {
+                seats.incrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public void forget(long courseid)
+    {
+        AfterCommit.run(() -> freeSeats.remove(courseid));
+    }
+
+    @Override
+    public void forgetAll()
+    {
+        AfterCommit.run(freeSeats::clear);
+    }
+
+    private AtomicInteger load(long courseid)
+    {
+        Optional<Course> course = courserepos.findById(courseid);
+        if (!course.isPresent())
+        {
+            return null;
+        }
+        Integer capacity = course.get().getCapacity();
+        if (capacity == null)
+        {
+            return UNLIMITED;
+        }
+        int taken = countrepos.findById(courseid).map(CourseStudentCount::getCountstudents).orElse(0);
+        return new AtomicInteger(capacity - taken);
+    }
+}
@@ -0,0 +1,8 @@
+package com.lambdaschool.school.service;
+
+import java.util.function.Supplier;
+
+public interface SingleFlightService
+{
+    <T> T get(String key, Supplier<T> loader, String... resources);
+}
@@ -0,0 +1,244 @@
+package com.lambdaschool.school.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+// Collapses concurrent identical reads into one. Callers that find no usable result wait on
+// the load already in flight for their key instead of running the same query again, and share
+// what it returns. A result is reused until a write to one of the resources it was read from
+// commits (see ResourceChangedEvent) or it is older than school.single-flight.max-age-ms. Once
+// a write has committed nobody gets the older result again, the response cache and the ETags
+// have already moved on. A result that merely aged out is still handed out for
+// school.single-flight.stale-ms while a single background load replaces it, later callers wait
+// for a fresh one. Loads run in a read-only transaction of their own and must return something
+// callers don't modify.
+@Service(value = "singleFlightService")
+public class SingleFlightServiceImpl implements SingleFlightService
+{
+    private static final Logger logger = LoggerFactory.getLogger(SingleFlightServiceImpl.class);
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${school.single-flight.max-age-ms:60000}")
+    private long maxAgeMs;
+
+    @Value("${school.single-flight.stale-ms:2000}")
+    private long staleMs;
+
+    private TransactionTemplate readOnly;
+
+    private final ConcurrentHashMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+    private final AtomicInteger refresherThreads = new AtomicInteger();
+
+    // a refresh that finds both threads busy and the queue full runs in the caller instead
+    private final ThreadPoolExecutor refresher = new ThreadPoolExecutor(2, 2, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(16), r ->
+    {
+        Thread t = new Thread(r, "single-flight-refresh-" + refresherThreads.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+    private static class Result
+    {
+        final Object value;
+        final long generation;
+        final long loadedAt;
+
+        Result(Object value, long generation, long loadedAt)
+        {
+            this.value = value;
+            this.generation = generation;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private static class Flight
+    {
+        final String key;
+        final Set<String> resources;
+        final AtomicLong generation = new AtomicLong();
+        final AtomicReference<CompletableFuture<Result>> inFlight = new AtomicReference<>();
+        volatile Result result;
+        final Counter hits;
+        final Counter stale;
+        final Counter waits;
+        final Counter loads;
+
+        Flight(MeterRegistry meterRegistry, String key, String... resources)
+        {
+            this.key = key;
+            this.resources = new HashSet<>(Arrays.asList(resources));
+            this.hits = meterRegistry.counter("school.single.flight", "key", key, "result", "hit");
+            this.stale = meterRegistry.counter("school.single.flight", "key", key, "result", "stale");
+            this.waits = meterRegistry.counter("school.single.flight", "key", key, "result", "wait");
+            this.loads = meterRegistry.counter("school.single.flight", "key", key, "result", "load");
+        }
+    }
+
+    @PostConstruct
+    public void createTransactionTemplate()
+    {
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        refresher.shutdownNow();
+    }
+
+    // ahead of the response cache and the ETags, so whoever sees their new generation gets a new result here
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onResourceChanged(ResourceChangedEvent event)
+    {
+        for (Flight flight : flights.values())
+        {
+            if (flight.resources.contains(event.getResource()))
+            {
+                flight.generation.incrementAndGet();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T get(String key, Supplier<T> loader, String... resources)
+    {
+        Flight flight = flights.computeIfAbsent(key, k -> new Flight(meterRegistry, k, resources));
+
+        // anything loaded from here on has seen every write this caller could have seen
+        long wanted = flight.generation.get();
+        Result result = flight.result;
+        // a result from before a committed write is never served, not even while refreshing
+        if (result != null && result.generation >= wanted)
+        {
+            long age = System.currentTimeMillis() - result.loadedAt;
+            if (age < maxAgeMs)
+            {
+                flight.hits.increment();
+                return (T) result.value;
+            }
+            if (age < maxAgeMs + staleMs)
+            {
+                flight.stale.increment();
+                refresh(flight, loader);
+                return (T) result.value;
+            }
+        }
+        return (T) join(flight, loader, wanted).value;
+    }
+
+    private Result join(Flight flight, Supplier<?> loader, long wanted)
+    {
+        for (;;)
+        {
+            CompletableFuture<Result> load = flight.inFlight.get();
+            if (load == null)
+            {
+                CompletableFuture<Result> mine = new CompletableFuture<>();
+                if (!flight.inFlight.compareAndSet(null, mine))
+                {
+                    continue;
+                }
+                load(flight, loader, mine);
+                load = mine;
+            } else
+            {
+                flight.waits.increment();
+            }
+
+            Result result;
+            try
+            {
+                result = load.join();
+            } catch (CompletionException e)
+            {
+                if (e.getCause() instanceof RuntimeException)
+                {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error)
+                {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+            // a load that started before a write this caller may have made doesn't do, wait for the next
+            if (result.generation >= wanted)
+            {
+                return result;
+            }
+        }
+    }
+
+    private void refresh(Flight flight, Supplier<?> loader)
+    {
+        CompletableFuture<Result> mine = new CompletableFuture<>();
+        if (flight.inFlight.compareAndSet(null, mine))
+        {
+            // nobody waits on a refresh, so a failure is only logged and the next caller tries again
+            mine.whenComplete((result, e) ->
+            {
+                if (e != null)
+                {
+                    logger.warn("Could not refresh " + flight.key, e);
+                }
+            });
+            refresher.execute(() -> load(flight, loader, mine));
+        }
+    }
+
+    private void load(Flight flight, Supplier<?> loader, CompletableFuture<Result> load)
+    {
+        flight.loads.increment();
+        long generation = flight.generation.get();
+        long startedAt = System.currentTimeMillis();
+        try
+        {
+            Result result = new Result(readOnly.execute(status -> loader.get()), generation, startedAt);
+            flight.result = result;
+            load.complete(result);
+        } catch (RuntimeException | Error e)
+        {
+            load.completeExceptionally(e);
+        } finally
+        {
+            flight.inFlight.compareAndSet(load, null);
+        }
+    }
+}
@@ -1,9 +1,18 @@
 package com.lambdaschool.school.service;
 
 import com.lambdaschool.school.model.Student;
+import com.lambdaschool.school.view.BatchResult;
+import com.lambdaschool.school.view.ChangeSet;
+import com.lambdaschool.school.view.DeleteResult;
+import com.lambdaschool.school.view.KeysetCursor;
+import com.lambdaschool.school.view.StudentSummary;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
 
 public interface StudentService
 {
@@ -11,13 +20,39 @@ public interface StudentService
 
     List<Student> findAll();
 
+    Slice<Student> findSlice(Pageable pageable);
+
+    long getApproximateTotal();
+
+    List<Student> findAllAfter(KeysetCursor after, int size);
+
+    List<StudentSummary> findAllSummaries(Pageable pageable);
+
+    ChangeSet<Student> findChangedSince(String token);
+
+    void exportAll(OutputStream out) throws IOException;
+
     Student findStudentById(long id);
 
+    BatchResult<Student> findStudentsById(List<Long> ids);
+
     List<Student> findStudentByNameLike(String name);
 
+    Slice<Student> search(String name, Long courseid, Long instructid, Pageable pageable);
+
     void delete(long id);
 
+    DeleteResult deleteAll(List<Long> ids, Long courseid);
+
     Student save (Student student);
 
-    Student update(Student student, long id);
+    List<Long> saveAll(List<Student> students);
+
+    Student update(Student student, long id, Long version);
+
+    long patch(long id, Map<String, Object> changes, Long version);
+
+    boolean enroll(long studid, long courseid);
+
+    void unenroll(long studid, long courseid);
 }
@@ -1,64 +1,412 @@
 package com.lambdaschool.school.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lambdaschool.school.exceptions.BadRequestException;
+import com.lambdaschool.school.exceptions.ConflictException;
+import com.lambdaschool.school.exceptions.ResourceNotFoundException;
 import com.lambdaschool.school.model.Course;
 import com.lambdaschool.school.model.Student;
+import com.lambdaschool.school.repository.CourseRepository;
+import com.lambdaschool.school.repository.EnrollmentJdbcRepository;
 import com.lambdaschool.school.repository.StudentRepository;
+import com.lambdaschool.school.repository.StudentSpecifications;
+import com.lambdaschool.school.view.BatchResult;
+import com.lambdaschool.school.view.ChangeSet;
+import com.lambdaschool.school.view.DeleteResult;
+import com.lambdaschool.school.view.EntityTag;
+import com.lambdaschool.school.view.KeysetCursor;
+import com.lambdaschool.school.view.StudentSummary;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
 import javax.persistence.EntityNotFoundException;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
 
 @Service(value = "studentService")
 public class StudentServiceImpl implements StudentService
 {
+    private static final Logger logger = LoggerFactory.getLogger(StudentServiceImpl.class);
+
+    // most ids a single multi-get may ask for
+    private static final int MAX_BATCH_IDS = 100;
+
+    // most rows a single delta sync returns
+    private static final int MAX_CHANGES = 1000;
+
+    // ids per statement in a bulk delete
+    private static final int MAX_DELETE_IDS = 1000;
+
+    // most students a single bulk create may carry
+    private static final int MAX_BULK_STUDENTS = 10000;
+
+    // persisted students between flushes of a bulk create, matches hibernate.jdbc.batch_size
+    private static final int BULK_FLUSH_INTERVAL = 50;
+
+    // tries at an enrollment that keeps losing lock races, and the first backoff between them
+    private static final int ENROLL_ATTEMPTS = 5;
+
+    private static final long ENROLL_BACKOFF_MS = 10;
+
+    // students loaded, written and detached together during an export
+    private static final int EXPORT_CLEAR_INTERVAL = 500;
+
     @Autowired
     private StudentRepository studrepos;
 
+    @Autowired
+    private CourseRepository courserepos;
+
+    @Autowired
+    private EnrollmentJdbcRepository enrollmentJdbcRepository;
+
+    @Autowired
+    private EnrollmentCountService enrollmentCountService;
+
+    @Autowired
+    private TombstoneService tombstoneService;
+
+    @Autowired
+    private TotalCountService totalCountService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AuditorAware<String> auditorAware;
+
+    @Autowired
+    private SeatReservationService seatReservationService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private SingleFlightService singleFlightService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    // how far a sync token is wound back to pick up transactions that commit late
+    @Value("${school.sync.overlap-ms:5000}")
+    private long syncOverlapMs;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    // Student.courses is batch fetched, this costs a query per 50 students
+    private static <T extends Collection<Student>> T withCourses(T students)
+    {
+        for (Student s : students)
+        {
+            Hibernate.initialize(s.getCourses());
+        }
+        return students;
+    }
+
+    @Transactional(readOnly = true)
     @Override
     public List<Student> findAll(Pageable pageable)
     {
-        List<Student> list = new ArrayList<>();
-        studrepos.findAll(pageable).iterator().forEachRemaining(list::add);
-        return list;
+        return new ArrayList<>(findSlice(pageable).getContent());
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public Slice<Student> findSlice(Pageable pageable)
+    {
+        Slice<Student> slice = studrepos.findAllSliced(KeysetCursor.orderedById(pageable, "studid"));
+        withCourses(slice.getContent());
+        return slice;
     }
 
+    @Override
+    public long getApproximateTotal()
+    {
+        return totalCountService.getTotal("students");
+    }
+
+    // shared by concurrent callers, each gets its own copy of the list
     @Override
     public List<Student> findAll()
     {
-        List<Student> list = new ArrayList<>();
-        studrepos.findAll().iterator().forEachRemaining(list::add);
-        return list;
+        return new ArrayList<>(singleFlightService.get("students", () ->
+        {
+            List<Student> list = new ArrayList<>();
+            studrepos.findAllWithCourses().iterator().forEachRemaining(list::add);
+            return list;
+        }, "student", "course"));
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public List<Student> findAllAfter(KeysetCursor after, int size)
+    {
+        Pageable limit = PageRequest.of(0, size);
+        switch (after.getSortkey())
+        {
+            case "studid":
+                return withCourses(studrepos.findByStudidGreaterThanOrderByStudidAsc(after.getId(), limit));
+            case "studname":
+                return withCourses(studrepos.findByStudnameAfter(after.getValue(), after.getId(), limit));
+            default:
+                throw new BadRequestException("Students cannot be paged by " + after.getSortkey());
+        }
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<StudentSummary> findAllSummaries(Pageable pageable)
+    {
+        return studrepos.findAllProjectedBy(pageable);
+    }
+
+    // Students whose row changed since the token, with their current courses, so a
+    // changed enrollment arrives as the student it belongs to. Deleted courses come
+    // through the course change set.
+    @Transactional(readOnly = true)
+    @Override
+    public ChangeSet<Student> findChangedSince(String token)
+    {
+        long[] since = ChangeSet.parseToken(token);
+        if (since[0] > 0 && since[0] < tombstoneService.getRetainedSince().getTime())
+        {
+            throw new BadRequestException("Sync token " + token + " has expired, sync again without a token");
+        }
+
+        long started = System.currentTimeMillis();
+        Date from = new Date(since[0]);
+        List<Student> changed = withCourses(studrepos.findChangedSince(from, since[1], PageRequest.of(0, MAX_CHANGES)));
+        List<Long> deleted = tombstoneService.findDeletedSince("student", from);
+
+        boolean more = changed.size() >= MAX_CHANGES;
+        String next;
+        if (more)
+        {
+            Student last = changed.get(changed.size() - 1);
+            next = ChangeSet.token(last.getLastModifiedDate().getTime(), last.getStudid());
+        } else
+        {
+            next = ChangeSet.token(Math.max(since[0], started - syncOverlapMs), 0);
+        }
+        return new ChangeSet<>(next, more, changed, deleted);
+    }
+
+    // Writes one JSON document per student, newline delimited. The ids are scrolled off the
+    // database, the students of every few hundred of them are loaded with their courses,
+    // written and detached again, so memory use does not depend on the size of the table.
+    // Only whole chunks are detached, the scroll itself holds no entities.
+    @Transactional(readOnly = true)
+    @Override
+    public void exportAll(OutputStream out) throws IOException
+    {
+        try (Stream<Long> studids = studrepos.streamAllIds())
+        {
+            List<Long> chunk = new ArrayList<>(EXPORT_CLEAR_INTERVAL);
+            Iterator<Long> it = studids.iterator();
+            while (it.hasNext())
+            {
+                chunk.add(it.next());
+                if (chunk.size() == EXPORT_CLEAR_INTERVAL || !it.hasNext())
+                {
+                    for (Student student : studrepos.findAllWithCoursesByIds(chunk))
+                    {
+                        out.write(objectMapper.writeValueAsBytes(student));
+                        out.write('\n');
+                    }
+                    out.flush();
+                    em.clear();
+                    chunk.clear();
+                }
+            }
+        }
+        out.flush();
+    }
+
+    @Transactional(readOnly = true)
     @Override
     public Student findStudentById(long id) throws EntityNotFoundException
     {
-        return studrepos.findById(id)
+        Student student = studrepos.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Long.toString(id)));
+        Hibernate.initialize(student.getCourses());
+        return student;
+    }
+
+    // one IN query for the students, their courses follow in batches
+    @Transactional(readOnly = true)
+    @Override
+    public BatchResult<Student> findStudentsById(List<Long> ids)
+    {
+        LinkedHashSet<Long> wanted = BatchResult.wanted(ids, MAX_BATCH_IDS);
+        BatchResult<Student> result = BatchResult.of(wanted, studrepos.findAllById(wanted), Student::getStudid);
+        withCourses(result.getFound());
+        return result;
+    }
+
+    // Any combination of the filters, the ones left null are skipped. Each combination
+    // renders to the same JPQL every time (literals are bound, see application.properties)
+    // so Hibernate compiles it once and reuses the plan from its query plan cache.
+    @Transactional(readOnly = true)
+    @Override
+    public Slice<Student> search(String name, Long courseid, Long instructid, Pageable pageable)
+    {
+        Specification<Student> spec = Specification.where(null);
+        if (name != null && !name.isEmpty())
+        {
+            spec = spec.and(StudentSpecifications.nameStartsWith(name));
+        }
+        if (courseid != null)
+        {
+            spec = spec.and(StudentSpecifications.enrolledIn(courseid));
+        }
+        if (instructid != null)
+        {
+            spec = spec.and(StudentSpecifications.taughtBy(instructid));
+        }
+
+        // one row past the page tells whether another follows, without a count query
+        Pageable ordered = KeysetCursor.orderedById(pageable, "studid");
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Student> query = cb.createQuery(Student.class);
+        Root<Student> root = query.from(Student.class);
+        Predicate where = spec.toPredicate(root, query, cb);
+        if (where != null)
+        {
+            query.where(where);
+        }
+        query.orderBy(QueryUtils.toOrders(ordered.getSort(), root, cb));
+        List<Student> rows = em.createQuery(query)
+                .setFirstResult((int) ordered.getOffset())
+                .setMaxResults(ordered.getPageSize() + 1)
+                .getResultList();
+
+        boolean hasNext = rows.size() > ordered.getPageSize();
+        List<Student> content = withCourses(new ArrayList<>(hasNext ? rows.subList(0, ordered.getPageSize()) : rows));
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillStudnamekeys()
+    {
+        int filled = studrepos.backfillStudnamekeys();
+        if (filled > 0)
+        {
+            logger.info(filled + " student name keys filled in");
+        }
     }
 
+    @Transactional(readOnly = true)
     @Override
     public List<Student> findStudentByNameLike(String name)
     {
         List<Student> list = new ArrayList<>();
         studrepos.findByStudnameContainingIgnoreCase(name).iterator().forEachRemaining(list::add);
-        return list;
+        return withCourses(list);
     }
 
+    @Transactional
     @Override
     public void delete(long id) throws EntityNotFoundException
     {
-        if (studrepos.findById(id).isPresent())
+        if (!deleteAll(Collections.singletonList(id), null).getMissing().isEmpty())
         {
-            studrepos.deleteById(id);
+            throw new EntityNotFoundException(Long.toString(id));
+        }
+    }
+
+    // The same handful of set based statements per thousand students, the students are
+    // never loaded. With a courseid only the students enrolled in that course are deleted,
+    // all of them when no ids are given.
+    @Transactional
+    @Override
+    public DeleteResult deleteAll(List<Long> ids, Long courseid)
+    {
+        List<Long> wanted = ids == null ? new ArrayList<>() : new ArrayList<>(new LinkedHashSet<>(ids));
+        if (wanted.isEmpty() && courseid == null)
+        {
+            throw new BadRequestException("Give the ids or a courseid of the students to delete");
+        }
+        Set<Long> existing = new HashSet<>();
+        if (courseid != null)
+        {
+            existing.addAll(studrepos.findIdsByCourseid(courseid));
+            if (wanted.isEmpty())
+            {
+                wanted.addAll(existing);
+            }
         } else
         {
-            throw new EntityNotFoundException(Long.toString(id));
+            for (int i = 0; i < wanted.size(); i += MAX_DELETE_IDS)
+            {
+                existing.addAll(studrepos.findExistingIds(wanted.subList(i, Math.min(i + MAX_DELETE_IDS, wanted.size()))));
+            }
+        }
+
+        DeleteResult result = new DeleteResult();
+        for (Long id : wanted)
+        {
+            (existing.contains(id) ? result.getDeleted() : result.getMissing()).add(id);
+        }
+
+        List<Long> deleted = result.getDeleted();
+        for (int i = 0; i < deleted.size(); i += MAX_DELETE_IDS)
+        {
+            List<Long> chunk = deleted.subList(i, Math.min(i + MAX_DELETE_IDS, deleted.size()));
+            enrollmentCountService.studentsRemoved(chunk);
+            enrollmentJdbcRepository.deleteStudcoursesOfStudents(chunk);
+            studrepos.deleteAllByIds(chunk);
+        }
+        if (!deleted.isEmpty())
+        {
+            tombstoneService.recordAll("student", deleted);
+            outboxService.recordAll("student", deleted, "deleted");
+            totalCountService.invalidate("students");
         }
+        return result;
     }
 
     @Transactional
@@ -69,20 +417,281 @@ public class StudentServiceImpl implements StudentService
 
         newStudent.setStudname(student.getStudname());
 
-        return studrepos.save(newStudent);
+        for (Course c : student.getCourses())
+        {
+            Course course = courserepos.findById(c.getCourseid())
+                    .orElseThrow(() -> new EntityNotFoundException(Long.toString(c.getCourseid())));
+            newStudent.getCourses().add(course);
+        }
+
+        totalCountService.invalidate("students");
+        newStudent = studrepos.save(newStudent);
+        outboxService.record("student", newStudent.getStudid(), "created");
+        for (Course c : newStudent.getCourses())
+        {
+            if (!enrollmentCountService.enrolled(c.getCourseid()))
+            {
+                throw new ConflictException("Course " + c.getCourseid() + " is full");
+            }
+            outboxService.recordEnrollment(newStudent.getStudid(), c.getCourseid(), "created");
+        }
+        return newStudent;
     }
 
+    // Persists the students in JDBC batches. Their ids come out of preallocated sequence
+    // blocks, the enrollments go in with them and each course counter is adjusted once.
+    @Transactional
     @Override
-    public Student update(Student student, long id)
+    public List<Long> saveAll(List<Student> students)
     {
+        if (students.size() > MAX_BULK_STUDENTS)
+        {
+            throw new BadRequestException("At most " + MAX_BULK_STUDENTS + " students may be created at once");
+        }
+
+        // check every course once up front
+        Set<Long> courseids = new HashSet<>();
+        for (Student s : students)
+        {
+            for (Course c : s.getCourses())
+            {
+                courseids.add(c.getCourseid());
+            }
+        }
+        Set<Long> existing = new HashSet<>();
+        courserepos.findAllById(courseids).forEach(c -> existing.add(c.getCourseid()));
+        for (Long courseid : courseids)
+        {
+            if (!existing.contains(courseid))
+            {
+                throw new ResourceNotFoundException("Course " + courseid);
+            }
+        }
+
+        List<Long> ids = new ArrayList<>(students.size());
+        Map<Long, Integer> enrollments = new HashMap<>();
+        List<long[]> enrolled = new ArrayList<>();
+        int persisted = 0;
+        for (Student s : students)
+        {
+            Student newStudent = new Student(s.getStudname());
+            for (Course c : s.getCourses())
+            {
+                if (newStudent.getCourses().add(em.getReference(Course.class, c.getCourseid())))
+                {
+                    enrollments.merge(c.getCourseid(), 1, Integer::sum);
+                }
+            }
+            em.persist(newStudent);
+            ids.add(newStudent.getStudid());
+            for (Course c : newStudent.getCourses())
+            {
+                enrolled.add(new long[]{newStudent.getStudid(), c.getCourseid()});
+            }
+
+            if (++persisted % BULK_FLUSH_INTERVAL == 0)
+            {
+                em.flush();
+                em.clear();
+            }
+        }
+
+        // one full course turns the whole request away
+        for (Map.Entry<Long, Integer> e : enrollments.entrySet())
+        {
+            if (!enrollmentCountService.enrolled(e.getKey(), e.getValue()))
+            {
+                throw new ConflictException("Course " + e.getKey() + " has fewer than " + e.getValue() + " seats left");
+            }
+        }
+        outboxService.recordAll("student", ids, "created");
+        outboxService.recordEnrollments(enrolled, "created");
+        totalCountService.invalidate("students");
+        return ids;
+    }
+
+    // The whole student as the client read it, so when a version comes along (If-Match or the
+    // body) the student has to still be at it. Without one the write simply replaces. The
+    // @Version check at flush then catches a change that commits in between.
+    @Transactional
+    @Override
+    public Student update(Student student, long id, Long version)
+    {
+        Long expected = version != null ? version : student.getVersion();
+
         Student currentStudent = studrepos.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Long.toString(id)));
+        if (expected != null && !expected.equals(currentStudent.getVersion()))
+        {
+            throw new ConflictException("Student " + id + " has changed since version " + expected);
+        }
 
         if (student.getStudname() != null)
         {
             currentStudent.setStudname(student.getStudname());
         }
 
-        return studrepos.save(currentStudent);
+        outboxService.record("student", id, "updated");
+        currentStudent = studrepos.save(currentStudent);
+        // the new version, for the ETag
+        em.flush();
+        return currentStudent;
+    }
+
+    // JSON merge patch as a single UPDATE of the changed columns, conditional on the version
+    // the client read. Returns the new version.
+    @Transactional
+    @Override
+    public long patch(long id, Map<String, Object> changes, Long version)
+    {
+        long expected = EntityTag.expected(version, changes.get("version"));
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaUpdate<Student> update = cb.createCriteriaUpdate(Student.class);
+        Root<Student> root = update.from(Student.class);
+        for (Map.Entry<String, Object> change : changes.entrySet())
+        {
+            switch (change.getKey())
+            {
+                case "studname":
+                    if (!(change.getValue() instanceof String) || ((String) change.getValue()).trim().isEmpty())
+                    {
+                        throw new BadRequestException("studname must be a non empty string");
+                    }
+                    String studname = (String) change.getValue();
+                    update.set(root.<String>get("studname"), studname);
+                    update.set(root.<String>get("studnamekey"), studname.toLowerCase());
+                    break;
+                case "studid":
+                case "version":
+                    break;
+                case "courses":
+                    throw new BadRequestException("Enrollments are changed through /students/Student/" + id + "/courses/{courseid}");
+                default:
+                    throw new BadRequestException(change.getKey() + " cannot be changed");
+            }
+        }
+        update.set(root.<Long>get("version"), cb.sum(root.<Long>get("version"), 1L));
+        update.set(root.<Date>get("lastModifiedDate"), new Date());
+        update.set(root.<String>get("lastModifiedBy"), auditorAware.getCurrentAuditor().orElse("SYSTEM"));
+        update.where(cb.equal(root.get("studid"), id), cb.equal(root.get("version"), expected));
+
+        if (em.createQuery(update).executeUpdate() == 0)
+        {
+            if (!studrepos.existsById(id))
+            {
+                throw new ResourceNotFoundException("Student " + id);
+            }
+            throw new ConflictException("Student " + id + " has changed since version " + expected);
+        }
+        outboxService.record("student", id, "updated");
+        return expected + 1;
+    }
+
+    @PostConstruct
+    public void createTransactionTemplate()
+    {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Adds the single studcourses row, false when the student was already enrolled.
+    // A full course is turned away in memory before the database is involved, admitted
+    // enrollments take their seat with a conditional counter update and are retried in a
+    // fresh transaction when they lose a lock race.
+    @Override
+    public boolean enroll(long studid, long courseid)
+    {
+        if (!seatReservationService.tryReserve(courseid))
+        {
+            // a repeat of an enrollment that exists is answered alike, full course or not
+            if (enrollmentJdbcRepository.isEnrolled(studid, courseid))
+            {
+                return false;
+            }
+            throw new ConflictException("Course " + courseid + " is full");
+        }
+
+        boolean enrolled = false;
+        try
+        {
+            enrolled = withRetry(status -> enrollOnce(studid, courseid));
+            if (enrolled)
+            {
+                seatReservationService.confirm(courseid);
+            }
+            return enrolled;
+        } finally
+        {
+            if (!enrolled)
+            {
+                seatReservationService.release(courseid);
+            }
+        }
+    }
+
+    private boolean enrollOnce(long studid, long courseid)
+    {
+        if (!studrepos.existsById(studid))
+        {
+            throw new ResourceNotFoundException("Student " + studid);
+        }
+        if (!courserepos.existsById(courseid))
+        {
+            throw new ResourceNotFoundException("Course " + courseid);
+        }
+
+        if (enrollmentJdbcRepository.insertEnrollment(studid, courseid) == 0)
+        {
+            return false;
+        }
+        if (!enrollmentCountService.enrolledWithinCapacity(courseid))
+        {
+            seatReservationService.refuse(courseid);
+            throw new ConflictException("Course " + courseid + " is full");
+        }
+        studrepos.touch(studid, new Date());
+        outboxService.recordEnrollment(studid, courseid, "created");
+        return true;
+    }
+
+    private <T> T withRetry(TransactionCallback<T> action)
+    {
+        for (int attempt = 1; ; attempt++)
+        {
+            try
+            {
+                return transactionTemplate.execute(action);
+            } catch (ConcurrencyFailureException | DuplicateKeyException e)
+            {
+                // a lost lock race, or an insert race on studcourses the next attempt finds already settled
+                if (attempt == ENROLL_ATTEMPTS)
+                {
+                    throw e;
+                }
+                // exponential with jitter, so the losers don't collide again
+                long backoff = ENROLL_BACKOFF_MS << (attempt - 1);
+                try
+                {
+                    Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff));
+                } catch (InterruptedException ie)
+                {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Transactional
+    @Override
+    public void unenroll(long studid, long courseid)
+    {
+        if (enrollmentJdbcRepository.deleteEnrollment(studid, courseid) == 0)
+        {
+            throw new ResourceNotFoundException("Student " + studid + " is not enrolled in course " + courseid);
+        }
+        enrollmentCountService.unenrolled(courseid);
+        studrepos.touch(studid, new Date());
+        outboxService.recordEnrollment(studid, courseid, "deleted");
     }
 }
@@ -0,0 +1,18 @@
+package com.lambdaschool.school.service;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+public interface TombstoneService
+{
+    void record(String resource, long id);
+
+    void recordAll(String resource, Collection<Long> ids);
+
+    List<Long> findDeletedSince(String resource, Date since);
+
+    Date getRetainedSince();
+
+    void prune();
+}
@@ -0,0 +1,78 @@
+package com.lambdaschool.school.service;
+
+import com.lambdaschool.school.model.Tombstone;
+import com.lambdaschool.school.repository.TombstoneRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Service(value = "tombstoneService")
+public class TombstoneServiceImpl implements TombstoneService
+{
+    private static final Logger logger = LoggerFactory.getLogger(TombstoneServiceImpl.class);
+
+    @Autowired
+    private TombstoneRepository tombstonerepos;
+
+    @Value("${school.sync.tombstone-retention-days:30}")
+    private long retentionDays;
+
+    // written in the same transaction as the delete it stands for
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public void record(String resource, long id)
+    {
+        tombstonerepos.save(new Tombstone(resource, id, new Date()));
+    }
+
+    // ids come from the pooled sequence and the inserts go out in JDBC batches
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Override
+    public void recordAll(String resource, Collection<Long> ids)
+    {
+        Date deleted = new Date();
+        List<Tombstone> tombstones = new ArrayList<>(ids.size());
+        for (Long id : ids)
+        {
+            tombstones.add(new Tombstone(resource, id, deleted));
+        }
+        tombstonerepos.saveAll(tombstones);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<Long> findDeletedSince(String resource, Date since)
+    {
+        return tombstonerepos.findDeletedSince(resource, since);
+    }
+
+    // sync tokens older than this may have missed deletes
+    @Override
+    public Date getRetainedSince()
+    {
+        return new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays));
+    }
+
+    @Scheduled(fixedDelayString = "${school.sync.tombstone-prune.delay:3600000}")
+    @Transactional
+    @Override
+    public void prune()
+    {
+        int pruned = tombstonerepos.deleteOlderThan(getRetainedSince());
+        if (pruned > 0)
+        {
+            logger.info(pruned + " tombstones pruned");
+        }
+    }
+}
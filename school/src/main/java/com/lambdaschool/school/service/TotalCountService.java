@@ -0,0 +1,8 @@
+package com.lambdaschool.school.service;
+
+public interface TotalCountService
+{
+    long getTotal(String collection);
+
+    void invalidate(String collection);
+}
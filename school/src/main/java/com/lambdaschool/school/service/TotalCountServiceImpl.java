@@ -0,0 +1,124 @@
+package com.lambdaschool.school.service;
+
+import com.lambdaschool.school.repository.CourseRepository;
+import com.lambdaschool.school.repository.StudentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// Approximate row counts for the paged listings, which no longer run a count query per
+// page. A total is counted once, then served from memory and recounted in the background
+// when it is older than school.paging.total-ttl-ms or a write has committed since.
+@Service(value = "totalCountService")
+public class TotalCountServiceImpl implements TotalCountService
+{
+    private static final Logger logger = LoggerFactory.getLogger(TotalCountServiceImpl.class);
+
+    @Autowired
+    private StudentRepository studrepos;
+
+    @Autowired
+    private CourseRepository courserepos;
+
+    @Value("${school.paging.total-ttl-ms:60000}")
+    private long ttlMs;
+
+    private final Map<String, Supplier<Long>> counters = new HashMap<>();
+
+    private final ConcurrentHashMap<String, CachedTotal> totals = new ConcurrentHashMap<>();
+
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r ->
+    {
+        Thread t = new Thread(r, "total-count-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static class CachedTotal
+    {
+        volatile long value;
+        volatile long countedAt;
+        volatile boolean stale;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        CachedTotal(long value)
+        {
+            this.value = value;
+            this.countedAt = System.currentTimeMillis();
+        }
+    }
+
+    @PostConstruct
+    public void registerCounters()
+    {
+        counters.put("students", studrepos::count);
+        counters.put("courses", courserepos::count);
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        refresher.shutdownNow();
+    }
+
+    @Override
+    public long getTotal(String collection)
+    {
+        Supplier<Long> counter = counters.get(collection);
+        if (counter == null)
+        {
+            throw new IllegalArgumentException("No total kept for " + collection);
+        }
+
+        // the very first caller waits for the count, everybody after that gets the cached value
+        CachedTotal total = totals.computeIfAbsent(collection, c -> new CachedTotal(counter.get()));
+        if ((total.stale || System.currentTimeMillis() - total.countedAt > ttlMs) && total.refreshing.compareAndSet(false, true))
+        {
+            total.stale = false;
+            refresher.execute(() ->
+            {
+                try
+                {
+                    total.value = counter.get();
+                    total.countedAt = System.currentTimeMillis();
+                } catch (RuntimeException e)
+                {
+                    total.stale = true;
+                    logger.warn("Could not recount " + collection, e);
+                } finally
+                {
+                    total.refreshing.set(false);
+                }
+            });
+        }
+        return total.value;
+    }
+
+    // marks the total for a recount once the surrounding transaction, if any, has committed
+    @Override
+    public void invalidate(String collection)
+    {
+        AfterCommit.run(() -> markStale(collection));
+    }
+
+    private void markStale(String collection)
+    {
+        CachedTotal total = totals.get(collection);
+        if (total != null)
+        {
+            total.stale = true;
+        }
+    }
+}
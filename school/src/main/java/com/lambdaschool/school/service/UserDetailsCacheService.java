@@ -0,0 +1,14 @@
+package com.lambdaschool.school.service;
+
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.function.Function;
+
+public interface UserDetailsCacheService
+{
+    UserDetails get(String username, Function<String, UserDetails> loader);
+
+    void evict(String username);
+
+    void evictAll();
+}
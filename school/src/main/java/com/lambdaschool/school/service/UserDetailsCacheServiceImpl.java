@@ -0,0 +1,95 @@
+package com.lambdaschool.school.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Resolved logins, so a token request doesn't go to the database for the user and its
+// roles every time. What is kept is the username, the password hash and the authorities;
+// every caller gets a UserDetails of its own, because Spring Security erases the password
+// of the one it authenticated. Users and roles are evicted after the commit that changes
+// them, anything changed behind the application's back is seen after
+// school.login.cache.ttl-ms at the latest. A login that read the user before such a commit
+// may only finish loading after its eviction, so every eviction also moves a generation and
+// a load that saw it move is not kept.
+@Service(value = "userDetailsCacheService")
+public class UserDetailsCacheServiceImpl implements UserDetailsCacheService
+{
+    private final Cache<String, Credentials> credentials;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private static class Credentials
+    {
+        final String username;
+        final String password;
+        final List<GrantedAuthority> authorities;
+
+        Credentials(UserDetails user)
+        {
+            this.username = user.getUsername();
+            this.password = user.getPassword();
+            this.authorities = Collections.unmodifiableList(new ArrayList<>(user.getAuthorities()));
+        }
+
+        UserDetails toUserDetails()
+        {
+            return new User(username, password, authorities);
+        }
+    }
+
+    public UserDetailsCacheServiceImpl(@Value("${school.login.cache.max-users:10000}") long maxUsers,
+                                       @Value("${school.login.cache.ttl-ms:300000}") long ttlMs)
+    {
+        this.credentials = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    // the loader runs once per username however many logins arrive together, and whatever
+    // it throws reaches the caller without anything being kept
+    @Override
+    public UserDetails get(String username, Function<String, UserDetails> loader)
+    {
+        long loading = generation.get();
+        Credentials found = credentials.get(username, name -> new Credentials(loader.apply(name)));
+        if (generation.get() != loading)
+        {
+            // possibly read before a change that has been evicted since, this login may use it once
+            credentials.asMap().remove(username, found);
+        }
+        return found.toUserDetails();
+    }
+
+    @Override
+    public void evict(String username)
+    {
+        AfterCommit.run(() ->
+        {
+            generation.incrementAndGet();
+            credentials.invalidate(username);
+        });
+    }
+
+    @Override
+    public void evictAll()
+    {
+        AfterCommit.run(() ->
+        {
+            generation.incrementAndGet();
+            credentials.invalidateAll();
+        });
+    }
+}
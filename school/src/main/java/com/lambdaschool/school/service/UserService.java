@@ -1,6 +1,7 @@
 package com.lambdaschool.school.service;
 
 import com.lambdaschool.school.model.User;
+import com.lambdaschool.school.view.UserSummary;
 
 import java.util.List;
 
@@ -8,6 +9,8 @@ public interface UserService {
 
     List<User> findAll();
 
+    List<UserSummary> findAllSummaries();
+
     User findUserByName(String name);
 
     User findUserById(long id);
@@ -4,8 +4,12 @@ import com.lambdaschool.school.exceptions.ResourceNotFoundException;
 import com.lambdaschool.school.model.User;
 import com.lambdaschool.school.model.UserRoles;
 import com.lambdaschool.school.repository.RoleRepository;
+import com.lambdaschool.school.repository.UserRolesJdbcRepository;
 import com.lambdaschool.school.repository.UserRepository;
+import com.lambdaschool.school.view.UserSummary;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -15,7 +19,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @Service(value = "userService")
 public class UserServiceImpl implements UserDetailsService, UserService
@@ -27,36 +34,72 @@ public class UserServiceImpl implements UserDetailsService, UserService
     @Autowired
     private RoleRepository rolerepos;
 
-    @Transactional
-    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException
+    @Autowired
+    private UserRolesJdbcRepository userRolesJdbcRepository;
+
+    @Autowired
+    private UserDetailsCacheService userDetailsCacheService;
+
+    @Autowired
+    private ApplicationEventPublisher publisher;
+
+    private static User withRoles(User user)
     {
-        User user = userrepos.findByUsername(username);
-        if (user == null)
+        for (UserRoles ur : user.getUserRoles())
         {
-            throw new UsernameNotFoundException("Invalid username or password.");
+            Hibernate.initialize(ur.getRole());
         }
-        return new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPassword(), user.getAuthority());
+        return user;
+    }
+
+    // no transaction here, a cached login shouldn't take a connection. The query brings the
+    // roles along, so nothing is loaded lazily afterwards.
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException
+    {
+        return userDetailsCacheService.get(username, name ->
+        {
+            User user = userrepos.findByUsernameWithRoles(name);
+            if (user == null)
+            {
+                throw new UsernameNotFoundException("Invalid username or password.");
+            }
+            return new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPassword(), user.getAuthority());
+        });
     }
 
+    @Transactional(readOnly = true)
     public User findUserById(long id) throws ResourceNotFoundException
     {
-        return userrepos.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException(Long.toString(id)));
+        return withRoles(userrepos.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException(Long.toString(id))));
     }
 
+    @Transactional(readOnly = true)
     public List<User> findAll()
     {
         List<User> list = new ArrayList<>();
         userrepos.findAll().iterator().forEachRemaining(list::add);
+        list.forEach(UserServiceImpl::withRoles);
         return list;
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public List<UserSummary> findAllSummaries()
+    {
+        return userrepos.findAllProjectedBy();
+    }
+
+    @Transactional
     @Override
     public void delete(long id)
     {
-        if (userrepos.findById(id).isPresent())
+        Optional<User> user = userrepos.findById(id);
+        if (user.isPresent())
         {
             userrepos.deleteById(id);
+            userDetailsCacheService.evict(user.get().getUsername());
+            publisher.publishEvent(ResourceChangedEvent.of("user", id));
         }
         else
         {
@@ -78,9 +121,13 @@ public class UserServiceImpl implements UserDetailsService, UserService
             newRoles.add(new UserRoles(newUser, ur.getRole()));
         }
         newUser.setUserRoles(newRoles);
-        return userrepos.save(newUser);
+        userDetailsCacheService.evict(newUser.getUsername());
+        newUser = userrepos.save(newUser);
+        publisher.publishEvent(ResourceChangedEvent.of("user", newUser.getUserid()));
+        return newUser;
     }
 
+    @Transactional(readOnly = true)
     @Override
     public User findUserByName(String name)
     {
@@ -88,7 +135,7 @@ public class UserServiceImpl implements UserDetailsService, UserService
 
         if (currentUser != null)
         {
-            return currentUser;
+            return withRoles(currentUser);
         }
         else
         {
@@ -107,6 +154,7 @@ public class UserServiceImpl implements UserDetailsService, UserService
         {
             if (id == currentUser.getUserid())
             {
+                userDetailsCacheService.evict(currentUser.getUsername());
                 if (user.getUsername() != null)
                 {
                     currentUser.setUsername(user.getUsername());
@@ -120,16 +168,31 @@ public class UserServiceImpl implements UserDetailsService, UserService
                 if (user.getUserRoles().size() > 0)
                 {
                     // with so many relationships happening, I decided to go
-                    // with old school queries
-                    // delete the old ones
-                    rolerepos.deleteUserRolesByUserId(currentUser.getUserid());
-
-                    // add the new ones
+                    // with old school queries. Only the roles that differ are
+                    // touched, in one delete and one insert.
+                    Set<Long> wanted = new HashSet<>();
                     for (UserRoles ur : user.getUserRoles())
                     {
-                        rolerepos.insertUserRoles(id, ur.getRole().getRoleid());
+                        wanted.add(ur.getRole().getRoleid());
+                    }
+                    Set<Long> current = new HashSet<>(rolerepos.findRoleidsByUserid(id));
+
+                    Set<Long> removed = new HashSet<>(current);
+                    removed.removeAll(wanted);
+                    Set<Long> added = new HashSet<>(wanted);
+                    added.removeAll(current);
+
+                    if (!removed.isEmpty())
+                    {
+                        userRolesJdbcRepository.deleteUserRoles(id, removed);
+                    }
+                    if (!added.isEmpty())
+                    {
+                        userRolesJdbcRepository.insertUserRoles(id, added);
                     }
                 }
+                userDetailsCacheService.evict(currentUser.getUsername());
+                publisher.publishEvent(ResourceChangedEvent.of("user", id));
                 return userrepos.save(currentUser);
             }
             else
@@ -0,0 +1,88 @@
+package com.lambdaschool.school.view;
+
+import com.lambdaschool.school.exceptions.BadRequestException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// answer to a multi-get, the rows that were found in the order asked for plus the ids
+// that don't exist
+public class BatchResult<T>
+{
+    private List<T> found = new ArrayList<>();
+    private List<Long> missing = new ArrayList<>();
+
+    public BatchResult()
+    {
+    }
+
+    public BatchResult(List<T> found, List<Long> missing)
+    {
+        this.found = found;
+        this.missing = missing;
+    }
+
+    // the distinct ids of a multi-get in the order asked for, at most max of them
+    public static LinkedHashSet<Long> wanted(List<Long> ids, int max)
+    {
+        LinkedHashSet<Long> wanted = new LinkedHashSet<>(ids);
+        if (wanted.contains(null))
+        {
+            throw new BadRequestException("ids may not be empty");
+        }
+        if (wanted.size() > max)
+        {
+            throw new BadRequestException("At most " + max + " ids may be requested at once");
+        }
+        return wanted;
+    }
+
+    // the rows in the order of the wanted ids, the ids without a row as missing
+    public static <T> BatchResult<T> of(Collection<Long> wanted, Iterable<T> rows, Function<T, Long> idOf)
+    {
+        Map<Long, T> byId = new HashMap<>();
+        for (T row : rows)
+        {
+            byId.put(idOf.apply(row), row);
+        }
+
+        BatchResult<T> result = new BatchResult<>();
+        for (Long id : wanted)
+        {
+            T row = byId.get(id);
+            if (row != null)
+            {
+                result.found.add(row);
+            } else
+            {
+                result.missing.add(id);
+            }
+        }
+        return result;
+    }
+
+    public List<T> getFound()
+    {
+        return found;
+    }
+
+    public void setFound(List<T> found)
+    {
+        this.found = found;
+    }
+
+    public List<Long> getMissing()
+    {
+        return missing;
+    }
+
+    public void setMissing(List<Long> missing)
+    {
+        this.missing = missing;
+    }
+}
@@ -0,0 +1,89 @@
+package com.lambdaschool.school.view;
+
+import com.lambdaschool.school.model.OutboxEvent;
+
+import java.util.Date;
+
+// what the change stream sends for an outbox event. seq is the position in this instance's
+// stream, cursor is that position together with the run of the application it belongs to
+// ("epoch.seq"), for /events?after= and as the SSE event id.
+public class ChangeEvent
+{
+    private long seq;
+    private String cursor;
+    private long eventid;
+    private String resource;
+    private long resourceid;
+    private Long relatedid;
+    private String action;
+    private Date occurred;
+
+    public ChangeEvent()
+    {
+    }
+
+    public ChangeEvent(OutboxEvent event)
+    {
+        this.eventid = event.getEventid();
+        this.resource = event.getResource();
+        this.resourceid = event.getResourceid();
+        this.relatedid = event.getRelatedid();
+        this.action = event.getAction();
+        this.occurred = event.getOccurred();
+    }
+
+    // a copy at a place in the stream, the same event may be in several sinks
+    public ChangeEvent withSeq(String epoch, long seq)
+    {
+        ChangeEvent copy = new ChangeEvent();
+        copy.seq = seq;
+        copy.cursor = epoch + "." + seq;
+        copy.eventid = eventid;
+        copy.resource = resource;
+        copy.resourceid = resourceid;
+        copy.relatedid = relatedid;
+        copy.action = action;
+        copy.occurred = occurred;
+        return copy;
+    }
+
+    public long getSeq()
+    {
+        return seq;
+    }
+
+    public String getCursor()
+    {
+        return cursor;
+    }
+
+    public long getEventid()
+    {
+        return eventid;
+    }
+
+    public String getResource()
+    {
+        return resource;
+    }
+
+    public long getResourceid()
+    {
+        return resourceid;
+    }
+
+    public Long getRelatedid()
+    {
+        return relatedid;
+    }
+
+    public String getAction()
+    {
+        return action;
+    }
+
+    public Date getOccurred()
+    {
+        return occurred;
+    }
+}
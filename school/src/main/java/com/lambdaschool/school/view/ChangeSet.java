@@ -0,0 +1,96 @@
+package com.lambdaschool.school.view;
+
+import com.lambdaschool.school.exceptions.BadRequestException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Answer to a delta sync. Rows created or modified since the token, ids deleted since the
+// token and the token to send next time. Consecutive change sets overlap a little so a row
+// can show up twice, clients apply them as upserts. When more is true the limit was hit
+// and the client should ask again straight away with the new token.
+//
+// A token is "<epoch millis>" or "<epoch millis>-<id>", the id breaks ties between rows
+// modified in the same millisecond when a change set was cut off at the limit.
+public class ChangeSet<T>
+{
+    private String token;
+    private boolean more;
+    private List<T> changed = new ArrayList<>();
+    private List<Long> deleted = new ArrayList<>();
+
+    public ChangeSet()
+    {
+    }
+
+    public ChangeSet(String token, boolean more, List<T> changed, List<Long> deleted)
+    {
+        this.token = token;
+        this.more = more;
+        this.changed = changed;
+        this.deleted = deleted;
+    }
+
+    public static String token(long millis, long id)
+    {
+        return id > 0 ? millis + "-" + id : Long.toString(millis);
+    }
+
+    // {millis, id}
+    public static long[] parseToken(String token)
+    {
+        if (token == null || token.isEmpty())
+        {
+            return new long[]{0, 0};
+        }
+
+        try
+        {
+            String[] parts = token.split("-", 2);
+            return new long[]{Long.parseLong(parts[0]), parts.length > 1 ? Long.parseLong(parts[1]) : 0};
+        } catch (NumberFormatException e)
+        {
+            throw new BadRequestException("Invalid sync token " + token, e);
+        }
+    }
+
+    public String getToken()
+    {
+        return token;
+    }
+
+    public void setToken(String token)
+    {
+        this.token = token;
+    }
+
+    public boolean isMore()
+    {
+        return more;
+    }
+
+    public void setMore(boolean more)
+    {
+        this.more = more;
+    }
+
+    public List<T> getChanged()
+    {
+        return changed;
+    }
+
+    public void setChanged(List<T> changed)
+    {
+        this.changed = changed;
+    }
+
+    public List<Long> getDeleted()
+    {
+        return deleted;
+    }
+
+    public void setDeleted(List<Long> deleted)
+    {
+        this.deleted = deleted;
+    }
+}
@@ -0,0 +1,9 @@
+package com.lambdaschool.school.view;
+
+// lightweight row for course listings, only the columns below are selected
+public interface CourseSummary
+{
+    long getCourseid();
+    String getCoursename();
+    String getInstructname();
+}
@@ -0,0 +1,41 @@
+package com.lambdaschool.school.view;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// answer to a bulk delete, the ids that were deleted and the ones that weren't there
+public class DeleteResult
+{
+    private List<Long> deleted = new ArrayList<>();
+    private List<Long> missing = new ArrayList<>();
+
+    public DeleteResult()
+    {
+    }
+
+    public DeleteResult(List<Long> deleted, List<Long> missing)
+    {
+        this.deleted = deleted;
+        this.missing = missing;
+    }
+
+    public List<Long> getDeleted()
+    {
+        return deleted;
+    }
+
+    public void setDeleted(List<Long> deleted)
+    {
+        this.deleted = deleted;
+    }
+
+    public List<Long> getMissing()
+    {
+        return missing;
+    }
+
+    public void setMissing(List<Long> missing)
+    {
+        this.missing = missing;
+    }
+}
@@ -0,0 +1,83 @@
+package com.lambdaschool.school.view;
+
+import java.util.Date;
+
+// an enrollment accepted in write-behind mode, polled until it leaves QUEUED
+public class EnrollmentTicket
+{
+    public enum Status
+    {
+        QUEUED, ENROLLED, ALREADY_ENROLLED, FULL, FAILED
+    }
+
+    private String ticket;
+    private long studid;
+    private long courseid;
+    // written by the queue writer while request threads read them
+    private volatile Status status = Status.QUEUED;
+    private volatile String message;
+    private volatile Date completed;
+
+    public EnrollmentTicket()
+    {
+    }
+
+    public EnrollmentTicket(String ticket, long studid, long courseid)
+    {
+        this.ticket = ticket;
+        this.studid = studid;
+        this.courseid = courseid;
+    }
+
+    public String getTicket()
+    {
+        return ticket;
+    }
+
+    public void setTicket(String ticket)
+    {
+        this.ticket = ticket;
+    }
+
+    public long getStudid()
+    {
+        return studid;
+    }
+
+    public void setStudid(long studid)
+    {
+        this.studid = studid;
+    }
+
+    public long getCourseid()
+    {
+        return courseid;
+    }
+
+    public void setCourseid(long courseid)
+    {
+        this.courseid = courseid;
+    }
+
+    public Status getStatus()
+    {
+        return status;
+    }
+
+    public String getMessage()
+    {
+        return message;
+    }
+
+    public Date getCompleted()
+    {
+        return completed;
+    }
+
+    public void complete(Status status, String message)
+    {
+        this.message = message;
+        this.completed = new Date();
+        this.status = status;
+    }
+}
@@ -0,0 +1,83 @@
+package com.lambdaschool.school.view;
+
+import com.lambdaschool.school.exceptions.BadRequestException;
+
+// ETag / If-Match values for a single row, the quoted @Version of the entity. An If-Match may
+// also hold the ETag a GET answered, see isVersion.
+public final class EntityTag
+{
+    private EntityTag()
+    {
+    }
+
+    public static String of(long version)
+    {
+        return "\"" + version + "\"";
+    }
+
+    // version a patch is based on, If-Match wins over a version in the body
+    public static long expected(Long ifMatch, Object bodyVersion)
+    {
+        if (ifMatch != null)
+        {
+            return ifMatch;
+        }
+        if (bodyVersion instanceof Number)
+        {
+            return ((Number) bodyVersion).longValue();
+        }
+        throw new BadRequestException("The version being changed is required, send If-Match or a version field");
+    }
+
+    // null when there is no header or it is *
+    public static Long parse(String ifMatch)
+    {
+        String tag = opaque(ifMatch);
+        if (tag == null)
+        {
+            return null;
+        }
+        try
+        {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e)
+        {
+            throw new BadRequestException("If-Match must be an ETag from this service", e);
+        }
+    }
+
+    // false for the ETag of a GET (ResourceVersionService), which follows the changes of a
+    // resource rather than its @Version
+    public static boolean isVersion(String ifMatch)
+    {
+        String tag = opaque(ifMatch);
+        return tag == null || tag.matches("\\d+");
+    }
+
+    // If-Match against the ETag a GET answers now, weak or strong
+    public static boolean matches(String ifMatch, String etag)
+    {
+        String tag = opaque(ifMatch);
+        return tag != null && tag.equals(opaque(etag));
+    }
+
+    // the tag without W/ and quotes, null when there is none or it is *
+    private static String opaque(String ifMatch)
+    {
+        if (ifMatch == null || ifMatch.trim().isEmpty() || ifMatch.trim().equals("*"))
+        {
+            return null;
+        }
+
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/"))
+        {
+            tag = tag.substring(2);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\""))
+        {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        return tag;
+    }
+}
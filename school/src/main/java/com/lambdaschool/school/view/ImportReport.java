@@ -0,0 +1,122 @@
+package com.lambdaschool.school.view;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// outcome of a CSV import. Every chunk is its own transaction, so a failed chunk writes
+// nothing and is listed with the lines it covered, the other chunks stay committed.
+public class ImportReport
+{
+    private String kind;
+    private long rows;
+    private long written;
+    private int chunks;
+    private List<ChunkError> failed = new ArrayList<>();
+
+    public ImportReport()
+    {
+    }
+
+    public ImportReport(String kind)
+    {
+        this.kind = kind;
+    }
+
+    public String getKind()
+    {
+        return kind;
+    }
+
+    public void setKind(String kind)
+    {
+        this.kind = kind;
+    }
+
+    public long getRows()
+    {
+        return rows;
+    }
+
+    public void setRows(long rows)
+    {
+        this.rows = rows;
+    }
+
+    public long getWritten()
+    {
+        return written;
+    }
+
+    public void setWritten(long written)
+    {
+        this.written = written;
+    }
+
+    public int getChunks()
+    {
+        return chunks;
+    }
+
+    public void setChunks(int chunks)
+    {
+        this.chunks = chunks;
+    }
+
+    public List<ChunkError> getFailed()
+    {
+        return failed;
+    }
+
+    public void setFailed(List<ChunkError> failed)
+    {
+        this.failed = failed;
+    }
+
+    public static class ChunkError
+    {
+        private long firstLine;
+        private long lastLine;
+        private String error;
+
+        public ChunkError()
+        {
+        }
+
+        public ChunkError(long firstLine, long lastLine, String error)
+        {
+            this.firstLine = firstLine;
+            this.lastLine = lastLine;
+            this.error = error;
+        }
+
+        public long getFirstLine()
+        {
+            return firstLine;
+        }
+
+        public void setFirstLine(long firstLine)
+        {
+            this.firstLine = firstLine;
+        }
+
+        public long getLastLine()
+        {
+            return lastLine;
+        }
+
+        public void setLastLine(long lastLine)
+        {
+            this.lastLine = lastLine;
+        }
+
+        public String getError()
+        {
+            return error;
+        }
+
+        public void setError(String error)
+        {
+            this.error = error;
+        }
+    }
+}
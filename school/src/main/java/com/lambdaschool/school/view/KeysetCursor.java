@@ -0,0 +1,116 @@
+package com.lambdaschool.school.view;
+
+import com.lambdaschool.school.exceptions.BadRequestException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+
+// Opaque "after" token for keyset (seek) paging. It remembers the property the listing
+// is ordered by, the value of that property on the last row sent and the id of that row,
+// so the next page can start with WHERE (sortvalue, id) > (last sortvalue, last id)
+// instead of having the database skip over every earlier row.
+public class KeysetCursor
+{
+    // response header carrying the token for the page after the one returned
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private final String sortkey;
+    private final String value;
+    private final long id;
+
+    public KeysetCursor(String sortkey, String value, long id)
+    {
+        this.sortkey = sortkey;
+        this.value = value;
+        this.id = id;
+    }
+
+    public String getSortkey()
+    {
+        return sortkey;
+    }
+
+    public String getValue()
+    {
+        return value;
+    }
+
+    public long getId()
+    {
+        return id;
+    }
+
+    public String encode()
+    {
+        String raw = sortkey + "\n" + id + "\n" + (value == null ? "" : value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String token)
+    {
+        try
+        {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\n", 3);
+            if (parts.length != 3)
+            {
+                throw new BadRequestException("Invalid paging cursor " + token);
+            }
+            return new KeysetCursor(parts[0], parts[2], Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException e)
+        {
+            throw new BadRequestException("Invalid paging cursor " + token, e);
+        }
+    }
+
+    // The page with the id as the last sort order, and as the only one when none was asked
+    // for. Without it rows that tie on the sort (or every row, unsorted) come back in no
+    // particular order, and a cursor taken from the last of them skips or repeats rows.
+    public static Pageable orderedById(Pageable pageable, String idProperty)
+    {
+        Sort sort = pageable.getSort();
+        if (sort.getOrderFor(idProperty) != null)
+        {
+            return pageable;
+        }
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort.and(Sort.by(idProperty)));
+    }
+
+    // Which property an offset page can hand a cursor over for. Keyset paging only
+    // follows a single ascending order on the id or the name (then the id), anything else
+    // gets null and the listing just doesn't offer a next cursor. Unsorted pages are
+    // ordered by the id, see orderedById.
+    public static String sortKeyOf(Sort sort, String idProperty, String nameProperty)
+    {
+        if (sort.isUnsorted())
+        {
+            return idProperty;
+        }
+
+        Iterator<Sort.Order> orders = sort.iterator();
+        Sort.Order order = orders.next();
+        if (!order.isAscending())
+        {
+            return null;
+        }
+        if (orders.hasNext())
+        {
+            Sort.Order tiebreak = orders.next();
+            if (orders.hasNext() || !order.getProperty().equals(nameProperty)
+                    || !tiebreak.getProperty().equals(idProperty) || !tiebreak.isAscending())
+            {
+                return null;
+            }
+        }
+
+        if (order.getProperty().equals(idProperty) || order.getProperty().equals(nameProperty))
+        {
+            return order.getProperty();
+        }
+        return null;
+    }
+}
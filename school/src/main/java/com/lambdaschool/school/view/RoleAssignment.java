@@ -0,0 +1,51 @@
+package com.lambdaschool.school.view;
+
+// answer to assigning a role to many users. Users that already had the role or don't
+// exist make up the difference between requested and assigned.
+public class RoleAssignment
+{
+    private long roleid;
+    private int requested;
+    private int assigned;
+
+    public RoleAssignment()
+    {
+    }
+
+    public RoleAssignment(long roleid, int requested, int assigned)
+    {
+        this.roleid = roleid;
+        this.requested = requested;
+        this.assigned = assigned;
+    }
+
+    public long getRoleid()
+    {
+        return roleid;
+    }
+
+    public void setRoleid(long roleid)
+    {
+        this.roleid = roleid;
+    }
+
+    public int getRequested()
+    {
+        return requested;
+    }
+
+    public void setRequested(int requested)
+    {
+        this.requested = requested;
+    }
+
+    public int getAssigned()
+    {
+        return assigned;
+    }
+
+    public void setAssigned(int assigned)
+    {
+        this.assigned = assigned;
+    }
+}
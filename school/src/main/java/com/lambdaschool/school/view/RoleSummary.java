@@ -0,0 +1,8 @@
+package com.lambdaschool.school.view;
+
+// lightweight row for role listings, only the columns below are selected
+public interface RoleSummary
+{
+    long getRoleid();
+    String getName();
+}
@@ -0,0 +1,8 @@
+package com.lambdaschool.school.view;
+
+// lightweight row for student listings, only the columns below are selected
+public interface StudentSummary
+{
+    long getStudid();
+    String getStudname();
+}
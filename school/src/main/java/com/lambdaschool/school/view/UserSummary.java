@@ -0,0 +1,8 @@
+package com.lambdaschool.school.view;
+
+// lightweight row for user listings, only the columns below are selected
+public interface UserSummary
+{
+    long getUserid();
+    String getUsername();
+}
@@ -0,0 +1,160 @@
+package com.lambdaschool.school;
+
+import com.lambdaschool.school.model.Course;
+import com.lambdaschool.school.model.Student;
+import com.lambdaschool.school.service.CourseService;
+import com.lambdaschool.school.service.StudentService;
+import com.lambdaschool.school.view.EntityTag;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@WithMockUser(username = "admin", roles = {"ADMIN", "USER"})
+public class ConditionalGetTests
+{
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StudentService studentService;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Test
+    public void anUnchangedStudentAnswers304AndAWriteMovesItsETag() throws Exception
+    {
+        Student student = studentService.save(new Student("Etag"));
+        String path = "/students/Student/" + student.getStudid();
+
+        String etag = etagOf(path);
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(patch(path)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header(HttpHeaders.IF_MATCH, EntityTag.of(student.getVersion()))
+                                .content("{\"studname\":\"Etag Renamed\"}"))
+                .andExpect(status().isNoContent());
+
+        String changed = mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, changed);
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, changed))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void anEnrollmentMovesTheCachedCourseListETag() throws Exception
+    {
+        long courseid = courseService.save(new Course("Etag Course")).getCourseid();
+        long studid = studentService.save(new Student("Etag Enrollee")).getStudid();
+        String path = "/courses/courses";
+
+        String etag = etagOf(path);
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(post("/students/Student/" + studid + "/courses/" + courseid))
+                .andExpect(status().isCreated());
+
+        // neither the response cache nor the single-flight may answer from before the enrollment
+        String changed = mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, changed);
+    }
+
+    @Test
+    public void removingAStudentMovesTheCachedCountsETag() throws Exception
+    {
+        long courseid = courseService.save(new Course("Etag Counted")).getCourseid();
+        long studid = studentService.save(new Student("Etag Counted Student")).getStudid();
+        studentService.enroll(studid, courseid);
+        String path = "/courses/studcount";
+
+        String etag = etagOf(path);
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // a student's removal lowers the counts without touching a course
+        mockMvc.perform(delete("/students/Student/" + studid))
+                .andExpect(status().isOk());
+
+        String changed = mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, changed);
+    }
+
+    @Test
+    public void aPutWithoutAVersionReplacesAndAStaleOneIsRefused() throws Exception
+    {
+        Student student = studentService.save(new Student("Put"));
+        String path = "/students/Student/" + student.getStudid();
+
+        mockMvc.perform(put(path)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"studname\":\"Put Renamed\"}"))
+                .andExpect(status().isOk());
+        assertEquals("Put Renamed", studentService.findStudentById(student.getStudid()).getStudname());
+
+        mockMvc.perform(put(path)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"studname\":\"Put Stale\",\"version\":" + student.getVersion() + "}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void theETagOfAGetCanBeSentBackAsIfMatch() throws Exception
+    {
+        Student student = studentService.save(new Student("Read Tag"));
+        String path = "/students/Student/" + student.getStudid();
+
+        String etag = etagOf(path);
+        mockMvc.perform(patch(path)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header(HttpHeaders.IF_MATCH, etag)
+                                .content("{\"studname\":\"Read Tag Renamed\"}"))
+                .andExpect(status().isNoContent());
+
+        // the student has moved on since that GET
+        mockMvc.perform(put(path)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header(HttpHeaders.IF_MATCH, etag)
+                                .content("{\"studname\":\"Read Tag Stale\"}"))
+                .andExpect(status().isConflict());
+    }
+
+    private String etagOf(String path) throws Exception
+    {
+        String etag = mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+}
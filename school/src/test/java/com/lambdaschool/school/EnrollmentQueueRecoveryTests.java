@@ -0,0 +1,228 @@
+package com.lambdaschool.school;
+
+import com.lambdaschool.school.exceptions.ResourceNotFoundException;
+import com.lambdaschool.school.repository.CourseRepository;
+import com.lambdaschool.school.repository.EnrollmentJdbcRepository;
+import com.lambdaschool.school.repository.StudentRepository;
+import com.lambdaschool.school.service.EnrollmentCountService;
+import com.lambdaschool.school.service.EnrollmentQueueServiceImpl;
+import com.lambdaschool.school.service.OutboxService;
+import com.lambdaschool.school.service.SeatReservationService;
+import com.lambdaschool.school.view.EnrollmentTicket;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The write-behind queue against a log left behind by an earlier run. The database side is
+// mocked, every enrollment handed to it is written.
+public class EnrollmentQueueRecoveryTests
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final EnrollmentJdbcRepository enrollmentJdbcRepository = mock(EnrollmentJdbcRepository.class);
+
+    private final EnrollmentCountService enrollmentCountService = mock(EnrollmentCountService.class);
+
+    private final SeatReservationService seatReservationService = mock(SeatReservationService.class);
+
+    private Path dir;
+
+    @Before
+    public void setUp()
+    {
+        dir = folder.getRoot().toPath();
+        when(enrollmentJdbcRepository.insertEnrollments(anyList())).thenAnswer(invocation ->
+        {
+            int[] inserted = new int[invocation.<List<?>>getArgument(0).size()];
+            Arrays.fill(inserted, 1);
+            return inserted;
+        });
+        when(enrollmentCountService.enrolledWithinCapacity(anyLong(), anyInt())).thenReturn(true);
+    }
+
+    @Test
+    public void whatWasAcceptedButNotWrittenIsWrittenAfterARestart() throws IOException
+    {
+        String written = "t1,1,1\n";
+        log(written + "t2,2,1\nt3,3,2\n", written.length());
+
+        EnrollmentQueueServiceImpl queue = open();
+        assertUnknown(queue, "t1");
+        assertEquals(EnrollmentTicket.Status.QUEUED, queue.findTicket("t2").getStatus());
+        assertEquals(EnrollmentTicket.Status.QUEUED, queue.findTicket("t3").getStatus());
+
+        queue.drain();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<long[]>> pairs = ArgumentCaptor.forClass(List.class);
+        verify(enrollmentJdbcRepository).insertEnrollments(pairs.capture());
+        assertEquals(2, pairs.getValue().size());
+        assertArrayEquals(new long[]{2, 1}, pairs.getValue().get(0));
+        assertArrayEquals(new long[]{3, 2}, pairs.getValue().get(1));
+        assertEquals(EnrollmentTicket.Status.ENROLLED, queue.findTicket("t2").getStatus());
+        assertEquals(EnrollmentTicket.Status.ENROLLED, queue.findTicket("t3").getStatus());
+        verify(seatReservationService).confirm(1);
+        verify(seatReservationService).confirm(2);
+        queue.close();
+
+        // caught up: the log starts over and the next run has nothing to replay
+        assertEquals("0", new String(Files.readAllBytes(dir.resolve("queue.offset")), StandardCharsets.UTF_8));
+        assertEquals(0, Files.size(dir.resolve("queue.log")));
+
+        clearInvocations(enrollmentJdbcRepository);
+        queue = open();
+        queue.drain();
+        verify(enrollmentJdbcRepository, never()).insertEnrollments(anyList());
+        queue.close();
+    }
+
+    @Test
+    public void aLineCutShortByACrashIsDropped() throws IOException
+    {
+        String complete = "t1,1,1\n";
+        log(complete + "t2,2", 0);
+
+        EnrollmentQueueServiceImpl queue = open();
+        assertEquals(complete.length(), Files.size(dir.resolve("queue.log")));
+        assertEquals(EnrollmentTicket.Status.QUEUED, queue.findTicket("t1").getStatus());
+        assertUnknown(queue, "t2");
+        queue.close();
+    }
+
+    @Test
+    public void aCrashBetweenCheckpointAndTruncateReplaysHarmlessly() throws IOException
+    {
+        // the checkpoint went back to 0 but the written log was not cut yet
+        log("t1,1,1\n", 0);
+        when(enrollmentJdbcRepository.insertEnrollments(anyList())).thenReturn(new int[]{0});
+
+        EnrollmentQueueServiceImpl queue = open();
+        queue.drain();
+
+        assertEquals(EnrollmentTicket.Status.ALREADY_ENROLLED, queue.findTicket("t1").getStatus());
+        verify(seatReservationService).release(1);
+        verify(seatReservationService, never()).confirm(anyLong());
+        queue.close();
+    }
+
+    @Test
+    public void aCheckpointPastTheEndOfTheLogReplaysNothing() throws IOException
+    {
+        log("", 42);
+
+        EnrollmentQueueServiceImpl queue = open();
+        queue.drain();
+
+        verify(enrollmentJdbcRepository, never()).insertEnrollments(anyList());
+        queue.close();
+    }
+
+    @Test
+    public void anEnrollmentTheDatabaseCouldNotTakeStaysQueued() throws IOException
+    {
+        log("t1,1,1\nt2,2,1\n", 0);
+        CannotGetJdbcConnectionException down = new CannotGetJdbcConnectionException("database down");
+        when(enrollmentJdbcRepository.insertEnrollments(anyList())).thenThrow(down);
+        when(enrollmentJdbcRepository.insertEnrollment(anyLong(), anyLong())).thenThrow(down);
+
+        EnrollmentQueueServiceImpl queue = open();
+        queue.drain();
+
+        assertEquals(EnrollmentTicket.Status.QUEUED, queue.findTicket("t1").getStatus());
+        assertEquals(EnrollmentTicket.Status.QUEUED, queue.findTicket("t2").getStatus());
+        assertEquals("0", new String(Files.readAllBytes(dir.resolve("queue.offset")), StandardCharsets.UTF_8));
+        verify(seatReservationService, never()).release(anyLong());
+
+        // back up: the next run writes both, in order
+        doReturn(new int[]{1, 1}).when(enrollmentJdbcRepository).insertEnrollments(anyList());
+        queue.drain();
+
+        assertEquals(EnrollmentTicket.Status.ENROLLED, queue.findTicket("t1").getStatus());
+        assertEquals(EnrollmentTicket.Status.ENROLLED, queue.findTicket("t2").getStatus());
+        queue.close();
+    }
+
+    @Test
+    public void anEnrollmentOfADeletedStudentFails() throws IOException
+    {
+        log("t1,1,1\n", 0);
+        DataIntegrityViolationException missing = new DataIntegrityViolationException("fk_studcourses_student");
+        when(enrollmentJdbcRepository.insertEnrollments(anyList())).thenThrow(missing);
+        when(enrollmentJdbcRepository.insertEnrollment(anyLong(), anyLong())).thenThrow(missing);
+
+        EnrollmentQueueServiceImpl queue = open();
+        queue.drain();
+
+        assertEquals(EnrollmentTicket.Status.FAILED, queue.findTicket("t1").getStatus());
+        verify(seatReservationService).release(1);
+        queue.close();
+    }
+
+    private void log(String lines, long checkpoint) throws IOException
+    {
+        Files.write(dir.resolve("queue.log"), lines.getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("queue.offset"), Long.toString(checkpoint).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private EnrollmentQueueServiceImpl open() throws IOException
+    {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        EnrollmentQueueServiceImpl queue = new EnrollmentQueueServiceImpl();
+        ReflectionTestUtils.setField(queue, "studrepos", mock(StudentRepository.class));
+        ReflectionTestUtils.setField(queue, "courserepos", mock(CourseRepository.class));
+        ReflectionTestUtils.setField(queue, "enrollmentCountService", enrollmentCountService);
+        ReflectionTestUtils.setField(queue, "seatReservationService", seatReservationService);
+        ReflectionTestUtils.setField(queue, "outboxService", mock(OutboxService.class));
+        ReflectionTestUtils.setField(queue, "enrollmentJdbcRepository", enrollmentJdbcRepository);
+        ReflectionTestUtils.setField(queue, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(queue, "enabled", true);
+        ReflectionTestUtils.setField(queue, "dir", dir.toString());
+        ReflectionTestUtils.setField(queue, "batchSize", 1000);
+        ReflectionTestUtils.setField(queue, "ticketRetentionMs", 3600000L);
+        queue.open();
+        return queue;
+    }
+
+    private static void assertUnknown(EnrollmentQueueServiceImpl queue, String ticket)
+    {
+        try
+        {
+            queue.findTicket(ticket);
+            fail("ticket " + ticket + " should not be queued");
+        } catch (ResourceNotFoundException e)
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.lambdaschool.school;
+
+import com.lambdaschool.school.config.IdempotencyFilter;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+// The filter in front of a stand-in for POST /students/Student that hands out a new id per call
+public class IdempotencyFilterTests
+{
+    private static final String STUDENT = "{\"studname\":\"Ada\"}";
+
+    private final IdempotencyFilter filter = new IdempotencyFilter(100, 60000, 10000);
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(2);
+
+    private final HttpServlet controller = new HttpServlet()
+    {
+        @Override
+        protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException
+        {
+            create(request, response);
+        }
+    };
+
+    @After
+    public void tearDown()
+    {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void aRetryGetsTheFirstResponseBack() throws Exception
+    {
+        MockHttpServletResponse first = post("retry", STUDENT, controller);
+        MockHttpServletResponse retry = post("retry", STUDENT, controller);
+
+        assertEquals(1, created.get());
+        assertEquals(201, first.getStatus());
+        assertNull(first.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(201, retry.getStatus());
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(first.getHeader(HttpHeaders.LOCATION), retry.getHeader(HttpHeaders.LOCATION));
+        assertEquals(first.getContentAsString(), retry.getContentAsString());
+    }
+
+    @Test
+    public void theSameKeyWithAnotherBodyIsRefused() throws Exception
+    {
+        post("mismatch", STUDENT, controller);
+        MockHttpServletResponse other = post("mismatch", "{\"studname\":\"Grace\"}", controller);
+
+        assertEquals(1, created.get());
+        assertEquals(422, other.getStatus());
+    }
+
+    @Test
+    public void differentKeysAreDifferentRequests() throws Exception
+    {
+        post("one", STUDENT, controller);
+        post("two", STUDENT, controller);
+
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    public void aDuplicateWhileTheFirstIsRunningWaitsForItsResponse() throws Exception
+    {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        HttpServlet slowController = new HttpServlet()
+        {
+            @Override
+            protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                entered.countDown();
+                try
+                {
+                    finish.await();
+                } catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                create(request, response);
+            }
+        };
+
+        Future<MockHttpServletResponse> first = pool.submit(() -> post("concurrent", STUDENT, slowController));
+        entered.await();
+        Future<MockHttpServletResponse> duplicate = pool.submit(() -> post("concurrent", STUDENT, controller));
+        Thread.sleep(200);
+        assertFalse(duplicate.isDone());
+
+        finish.countDown();
+        MockHttpServletResponse firstResponse = first.get(10, TimeUnit.SECONDS);
+        MockHttpServletResponse duplicateResponse = duplicate.get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, created.get());
+        assertEquals("true", duplicateResponse.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(firstResponse.getContentAsString(), duplicateResponse.getContentAsString());
+    }
+
+    private void create(HttpServletRequest request, HttpServletResponse response) throws IOException
+    {
+        // the filter has read the body already, the controller must still get it
+        if (StreamUtils.copyToString(request.getInputStream(), StandardCharsets.UTF_8).isEmpty())
+        {
+            response.setStatus(400);
+            return;
+        }
+        int studid = created.incrementAndGet();
+        response.setStatus(201);
+        response.setHeader(HttpHeaders.LOCATION, "http://localhost/students/Student/" + studid);
+        response.setContentType("application/json");
+        response.getOutputStream().write(("{\"studid\":" + studid + "}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private MockHttpServletResponse post(String key, String body, Servlet servlet) throws Exception
+    {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/students/Student");
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(servlet));
+        return response;
+    }
+}
@@ -0,0 +1,146 @@
+package com.lambdaschool.school;
+
+import com.lambdaschool.school.model.OutboxEvent;
+import com.lambdaschool.school.repository.OutboxEventRepository;
+import com.lambdaschool.school.service.ChangeEventBuffer;
+import com.lambdaschool.school.service.OutboxService;
+import com.lambdaschool.school.service.OutboxSink;
+import com.lambdaschool.school.view.ChangeEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+public class OutboxRelayTests
+{
+    @TestConfiguration
+    static class RecordingSinkConfig
+    {
+        @Bean
+        public RecordingSink recordingSink()
+        {
+            return new RecordingSink();
+        }
+    }
+
+    // keeps what it was sent, or refuses every batch while failing is set
+    static class RecordingSink implements OutboxSink
+    {
+        final List<ChangeEvent> received = new CopyOnWriteArrayList<>();
+        volatile boolean failing;
+
+        @Override
+        public void publish(List<ChangeEvent> events) throws Exception
+        {
+            if (failing)
+            {
+                throw new IOException("sink unavailable");
+            }
+            received.addAll(events);
+        }
+    }
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private OutboxEventRepository outboxrepos;
+
+    @Autowired
+    private ChangeEventBuffer changeEventBuffer;
+
+    @Autowired
+    private RecordingSink sink;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Before
+    public void setUp()
+    {
+        sink.failing = false;
+        sink.received.clear();
+    }
+
+    @Test
+    public void committedEventsReachEverySinkAndLeaveTheOutbox()
+    {
+        record("student", 424242);
+
+        outboxService.relay();
+
+        assertTrue(received(sink.received, 424242));
+        @SuppressWarnings("unchecked")
+        List<ChangeEvent> buffered = (List<ChangeEvent>) changeEventBuffer.poll("0", 10000, 0).getResult();
+        assertTrue(received(buffered, 424242));
+        assertEquals(0, outboxrepos.count());
+    }
+
+    @Test
+    public void aBatchASinkRefusedIsDeliveredByTheNextRelay()
+    {
+        sink.failing = true;
+        record("course", 434343);
+
+        outboxService.relay();
+
+        assertFalse(received(sink.received, 434343));
+        assertTrue(StreamSupport.stream(outboxrepos.findAll().spliterator(), false)
+                           .map(OutboxEvent::getResourceid)
+                           .anyMatch(id -> id == 434343));
+
+        sink.failing = false;
+        outboxService.relay();
+
+        assertTrue(received(sink.received, 434343));
+        assertEquals(0, outboxrepos.count());
+    }
+
+    @Test
+    public void aRolledBackWriteRecordsNothing()
+    {
+        new TransactionTemplate(transactionManager).execute(status ->
+        {
+            outboxService.record("student", 454545, "updated");
+            status.setRollbackOnly();
+            return null;
+        });
+
+        outboxService.relay();
+
+        assertFalse(received(sink.received, 454545));
+    }
+
+    private void record(String resource, long resourceid)
+    {
+        new TransactionTemplate(transactionManager).execute(status ->
+        {
+            outboxService.record(resource, resourceid, "updated");
+            return null;
+        });
+    }
+
+    private static boolean received(List<ChangeEvent> events, long resourceid)
+    {
+        return events.stream().anyMatch(e -> e.getResourceid() == resourceid);
+    }
+}
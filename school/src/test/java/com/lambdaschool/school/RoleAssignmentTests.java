@@ -0,0 +1,57 @@
+package com.lambdaschool.school;
+
+import com.lambdaschool.school.model.Role;
+import com.lambdaschool.school.repository.RoleRepository;
+import com.lambdaschool.school.repository.UserRepository;
+import com.lambdaschool.school.service.RoleService;
+import com.lambdaschool.school.view.RoleAssignment;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+public class RoleAssignmentTests
+{
+    @Autowired
+    private RoleService roleService;
+
+    @Autowired
+    private RoleRepository rolerepos;
+
+    @Autowired
+    private UserRepository userrepos;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    @Test
+    public void assigningARoleSkipsWhatIsThereAndLeavesTheCacheAlone()
+    {
+        long roleid = roleService.save(new Role("auditor")).getRoleid();
+        roleService.findRoleById(roleid);
+        assertTrue(emf.getCache().contains(Role.class, roleid));
+
+        long bob = userrepos.findByUsername("Bob").getUserid();
+        long jane = userrepos.findByUsername("Jane").getUserid();
+
+        RoleAssignment assignment = roleService.assignToUsers(roleid, Arrays.asList(bob, jane, 999999L));
+        assertEquals(3, assignment.getRequested());
+        assertEquals(2, assignment.getAssigned());
+        assertEquals(0, roleService.assignToUsers(roleid, Arrays.asList(bob, jane)).getAssigned());
+        assertTrue(rolerepos.findRoleidsByUserid(bob).contains(roleid));
+
+        // plain JDBC, Hibernate doesn't empty the second-level cache after it
+        assertTrue(emf.getCache().contains(Role.class, roleid));
+    }
+}
@@ -0,0 +1,211 @@
+package com.lambdaschool.school;
+
+import com.lambdaschool.school.exceptions.ConflictException;
+import com.lambdaschool.school.model.Course;
+import com.lambdaschool.school.model.CourseStudentCount;
+import com.lambdaschool.school.model.Student;
+import com.lambdaschool.school.repository.CourseStudentCountRepository;
+import com.lambdaschool.school.service.CourseService;
+import com.lambdaschool.school.service.ImportService;
+import com.lambdaschool.school.service.StudentService;
+import com.lambdaschool.school.view.ImportReport;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+public class SeatCapacityTests
+{
+    private static final int CAPACITY = 5;
+
+    private static final int STUDENTS = 40;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private StudentService studentService;
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private CourseStudentCountRepository countrepos;
+
+    @Autowired
+    @Qualifier("jdbcCustom")
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void concurrentEnrollmentsNeverExceedCapacity() throws Exception
+    {
+        Course course = new Course("Seat Rush");
+        course.setCapacity(CAPACITY);
+        long courseid = courseService.save(course).getCourseid();
+
+        List<Long> studids = new ArrayList<>();
+        for (int i = 0; i < STUDENTS; i++)
+        {
+            studids.add(studentService.save(new Student("Rush " + i)).getStudid());
+        }
+
+        AtomicInteger enrolled = new AtomicInteger();
+        AtomicInteger full = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try
+        {
+            List<Future<?>> enrollments = new ArrayList<>();
+            for (long studid : studids)
+            {
+                enrollments.add(pool.submit(() ->
+                {
+                    start.await();
+                    try
+                    {
+                        if (studentService.enroll(studid, courseid))
+                        {
+                            enrolled.incrementAndGet();
+                        }
+                    } catch (ConflictException e)
+                    {
+                        full.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            // anything but enrolled or full fails the test here
+            for (Future<?> enrollment : enrollments)
+            {
+                enrollment.get(30, TimeUnit.SECONDS);
+            }
+        } finally
+        {
+            pool.shutdownNow();
+        }
+
+        assertEquals(CAPACITY, enrolled.get());
+        assertEquals(STUDENTS - CAPACITY, full.get());
+        assertEquals(Integer.valueOf(CAPACITY),
+                     jdbcTemplate.queryForObject("SELECT COUNT(*) FROM studcourses WHERE courseid = ?", Integer.class, courseid));
+        assertEquals(CAPACITY, countrepos.findById(courseid).map(CourseStudentCount::getCountstudents).orElse(0).intValue());
+    }
+
+    @Test
+    public void aFullCourseTurnsTheNextStudentAway()
+    {
+        Course course = new Course("Single Seat");
+        course.setCapacity(1);
+        long courseid = courseService.save(course).getCourseid();
+        long first = studentService.save(new Student("First")).getStudid();
+        long second = studentService.save(new Student("Second")).getStudid();
+
+        assertEquals(true, studentService.enroll(first, courseid));
+        // enrolling again is not a second seat
+        assertEquals(false, studentService.enroll(first, courseid));
+        try
+        {
+            studentService.enroll(second, courseid);
+            fail("enrolled past capacity");
+        } catch (ConflictException e)
+        {
+            // expected
+        }
+        assertEquals(Integer.valueOf(1),
+                     jdbcTemplate.queryForObject("SELECT COUNT(*) FROM studcourses WHERE courseid = ?", Integer.class, courseid));
+    }
+
+    @Test
+    public void aNewStudentCannotBeCreatedIntoAFullCourse()
+    {
+        long courseid = fullCourse("Full For New Students");
+
+        Student student = new Student("Latecomer");
+        student.getCourses().add(courseService.findCourseById(courseid));
+        try
+        {
+            studentService.save(student);
+            fail("created into a full course");
+        } catch (ConflictException e)
+        {
+            // expected
+        }
+        assertEquals(Integer.valueOf(0),
+                     jdbcTemplate.queryForObject("SELECT COUNT(*) FROM student WHERE studname = 'Latecomer'", Integer.class));
+        assertEquals(Integer.valueOf(1),
+                     jdbcTemplate.queryForObject("SELECT COUNT(*) FROM studcourses WHERE courseid = ?", Integer.class, courseid));
+    }
+
+    @Test
+    public void aBulkCreationPastCapacityIsTurnedAway()
+    {
+        Course course = new Course("Two Seats");
+        course.setCapacity(2);
+        long courseid = courseService.save(course).getCourseid();
+
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+        {
+            Student student = new Student("Bulk " + i);
+            student.getCourses().add(courseService.findCourseById(courseid));
+            students.add(student);
+        }
+        try
+        {
+            studentService.saveAll(students);
+            fail("bulk enrolled past capacity");
+        } catch (ConflictException e)
+        {
+            // expected
+        }
+        assertEquals(Integer.valueOf(0),
+                     jdbcTemplate.queryForObject("SELECT COUNT(*) FROM studcourses WHERE courseid = ?", Integer.class, courseid));
+    }
+
+    @Test
+    public void importedEnrollmentsIntoAFullCourseAreSkipped() throws Exception
+    {
+        long courseid = fullCourse("Full For Imports");
+        long studid = studentService.save(new Student("Imported")).getStudid();
+
+        String csv = "studid,courseid\n" + studid + "," + courseid + "\n";
+        ImportReport report = importService.importEnrollments(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(0, report.getWritten());
+        assertEquals(Integer.valueOf(1),
+                     jdbcTemplate.queryForObject("SELECT COUNT(*) FROM studcourses WHERE courseid = ?", Integer.class, courseid));
+        assertEquals(1, countrepos.findById(courseid).map(CourseStudentCount::getCountstudents).orElse(0).intValue());
+    }
+
+    // a course with its one seat taken
+    private long fullCourse(String coursename)
+    {
+        Course course = new Course(coursename);
+        course.setCapacity(1);
+        long courseid = courseService.save(course).getCourseid();
+        studentService.enroll(studentService.save(new Student("Seated")).getStudid(), courseid);
+        return courseid;
+    }
+}